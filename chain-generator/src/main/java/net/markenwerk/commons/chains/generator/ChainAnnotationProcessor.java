@@ -0,0 +1,430 @@
+/*
+ * Copyright (c) 2016 Torsten Krause, Markenwerk GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.markenwerk.commons.chains.generator;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+
+import net.markenwerk.commons.chains.Chain;
+import net.markenwerk.commons.chains.generator.ChainStage.Kind;
+import net.markenwerk.commons.exceptions.ConversionException;
+import net.markenwerk.commons.exceptions.ProcessingException;
+import net.markenwerk.commons.interfaces.Converter;
+import net.markenwerk.commons.interfaces.Predicate;
+import net.markenwerk.commons.interfaces.Processor;
+
+/**
+ * A {@link ChainAnnotationProcessor} is an annotation processor that generates
+ * a class for every type that is annotated with {@link Chain}.
+ *
+ * <p>
+ * The generated class holds every stage in a field of the concrete class of
+ * the stage and calls the stages directly, such that every call site is
+ * monomorphic and no reflection is involved at runtime. Invalid chains, e.g.
+ * chains with stages whose types don't match, are reported as compilation
+ * errors on the annotated type.
+ *
+ * @author Torsten Krause (tk at markenwerk dot net)
+ * @since 4.1.0
+ */
+public final class ChainAnnotationProcessor extends AbstractProcessor {
+
+	private static final String STAGE = "stage";
+
+	private Elements elements;
+
+	private Types types;
+
+	@Override
+	public Set<String> getSupportedAnnotationTypes() {
+		return Collections.singleton(Chain.class.getName());
+	}
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment environment) {
+		elements = processingEnv.getElementUtils();
+		types = processingEnv.getTypeUtils();
+		for (Element element : environment.getElementsAnnotatedWith(Chain.class)) {
+			AnnotationMirror annotation = getChainAnnotation(element);
+			try {
+				generate((TypeElement) element, annotation);
+			} catch (InvalidChainException e) {
+				processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, e.getMessage(), element, annotation);
+			}
+		}
+		return true;
+	}
+
+	private AnnotationMirror getChainAnnotation(Element element) {
+		for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+			TypeElement annotationElement = (TypeElement) annotation.getAnnotationType().asElement();
+			if (annotationElement.getQualifiedName().contentEquals(Chain.class.getName())) {
+				return annotation;
+			}
+		}
+		throw new IllegalStateException("element isn't annotated with " + Chain.class.getName());
+	}
+
+	private void generate(TypeElement element, AnnotationMirror annotation) throws InvalidChainException {
+		String packageName = getPackageName(element);
+		String name = element.getSimpleName() + "Chain";
+		List<TypeMirror> stageTypes = new ArrayList<TypeMirror>();
+		for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : annotation.getElementValues()
+				.entrySet()) {
+			String key = entry.getKey().getSimpleName().toString();
+			if ("name".equals(key) && 0 != ((String) entry.getValue().getValue()).length()) {
+				name = (String) entry.getValue().getValue();
+			} else if ("value".equals(key)) {
+				for (Object value : (List<?>) entry.getValue().getValue()) {
+					stageTypes.add((TypeMirror) ((AnnotationValue) value).getValue());
+				}
+			}
+		}
+		if (!SourceVersion.isIdentifier(name) || SourceVersion.isKeyword(name)) {
+			throw new InvalidChainException(name + " is not a valid class name");
+		}
+		if (stageTypes.isEmpty()) {
+			throw new InvalidChainException("chain has no stages");
+		}
+		List<ChainStage> stages = new ArrayList<ChainStage>(stageTypes.size());
+		for (TypeMirror stageType : stageTypes) {
+			stages.add(analyze(stageType, packageName));
+		}
+		write(element, packageName, name, stages);
+	}
+
+	private ChainStage analyze(TypeMirror stageType, String packageName) throws InvalidChainException {
+		if (TypeKind.DECLARED != stageType.getKind()) {
+			throw new InvalidChainException(stageType + " is not a class");
+		}
+		TypeElement stageElement = (TypeElement) types.asElement(stageType);
+		if (ElementKind.CLASS != stageElement.getKind() && ElementKind.ENUM != stageElement.getKind()) {
+			throw new InvalidChainException(stageType + " is not a class");
+		}
+		if (!stageElement.getTypeParameters().isEmpty()) {
+			throw new InvalidChainException(stageType + " is generic");
+		}
+		for (Element current = stageElement; current instanceof TypeElement; current = current
+				.getEnclosingElement()) {
+			if (!isAccessible(current, packageName)) {
+				throw new InvalidChainException(stageType + " is not accessible from package " + packageName);
+			}
+		}
+		DeclaredType converter = findSupertype(stageType, Converter.class.getName());
+		DeclaredType processor = findSupertype(stageType, Processor.class.getName());
+		DeclaredType predicate = findSupertype(stageType, Predicate.class.getName());
+		int implemented = (null == converter ? 0 : 1) + (null == processor ? 0 : 1) + (null == predicate ? 0 : 1);
+		if (0 == implemented) {
+			throw new InvalidChainException(stageType + " implements neither Converter, Processor nor Predicate");
+		} else if (1 != implemented) {
+			throw new InvalidChainException(stageType
+					+ " implements more than one of Converter, Processor and Predicate");
+		} else if (null != converter) {
+			List<? extends TypeMirror> arguments = getTypeArguments(stageType, converter);
+			return new ChainStage(stageElement, Kind.CONVERTER, arguments.get(0), arguments.get(1));
+		} else if (null != processor) {
+			List<? extends TypeMirror> arguments = getTypeArguments(stageType, processor);
+			return new ChainStage(stageElement, Kind.PROCESSOR, arguments.get(0), arguments.get(0));
+		} else {
+			List<? extends TypeMirror> arguments = getTypeArguments(stageType, predicate);
+			return new ChainStage(stageElement, Kind.PREDICATE, arguments.get(0), null);
+		}
+	}
+
+	private DeclaredType findSupertype(TypeMirror type, String name) {
+		for (TypeMirror supertype : types.directSupertypes(type)) {
+			TypeElement supertypeElement = (TypeElement) types.asElement(supertype);
+			if (supertypeElement.getQualifiedName().contentEquals(name)) {
+				return (DeclaredType) supertype;
+			}
+			DeclaredType found = findSupertype(supertype, name);
+			if (null != found) {
+				return found;
+			}
+		}
+		return null;
+	}
+
+	private List<? extends TypeMirror> getTypeArguments(TypeMirror stageType, DeclaredType supertype)
+			throws InvalidChainException {
+		List<? extends TypeMirror> arguments = supertype.getTypeArguments();
+		if (arguments.isEmpty()) {
+			throw new InvalidChainException(stageType + " implements the raw type " + types.erasure(supertype));
+		}
+		return arguments;
+	}
+
+	private void write(TypeElement element, String packageName, String name, List<ChainStage> stages)
+			throws InvalidChainException {
+		int firstPredicate = stages.size();
+		for (int i = 0; i < stages.size(); i++) {
+			if (Kind.PREDICATE == stages.get(i).getKind()) {
+				firstPredicate = Math.min(firstPredicate, i);
+			} else if (firstPredicate < i) {
+				throw new InvalidChainException(stages.get(firstPredicate).getTypeName() + " is followed by "
+						+ stages.get(i).getTypeName() + ", which is not a Predicate");
+			}
+		}
+		List<ChainStage> transformations = stages.subList(0, firstPredicate);
+		List<ChainStage> predicates = stages.subList(firstPredicate, stages.size());
+		for (int i = 1; i < transformations.size(); i++) {
+			checkAssignable(transformations.get(i - 1).getOutput(), transformations.get(i));
+		}
+
+		String implemented;
+		String method;
+		if (!predicates.isEmpty()) {
+			TypeMirror input = transformations.isEmpty() ? getSubject(predicates) : transformations.get(0).getInput();
+			TypeMirror value = transformations.isEmpty() ? input : transformations.get(transformations.size() - 1)
+					.getOutput();
+			for (ChainStage predicate : predicates) {
+				checkAssignable(value, predicate);
+			}
+			implemented = Predicate.class.getName() + "<" + input + ">";
+			method = getTestMethod(input, value, transformations, predicates);
+		} else if (isProcessorChain(transformations)) {
+			TypeMirror value = transformations.get(0).getInput();
+			implemented = Processor.class.getName() + "<" + value + ">";
+			method = "\t@Override\n\tpublic " + value + " process(" + value + " value) throws "
+					+ ProcessingException.class.getName() + " {\n\t\treturn " + getCalls(transformations, "value")
+					+ ";\n\t}\n";
+		} else {
+			TypeMirror input = transformations.get(0).getInput();
+			TypeMirror output = transformations.get(transformations.size() - 1).getOutput();
+			implemented = Converter.class.getName() + "<" + input + ", " + output + ">";
+			method = getConvertMethod(input, output, transformations);
+		}
+
+		String qualifiedName = 0 == packageName.length() ? name : packageName + "." + name;
+		PrintWriter writer = null;
+		try {
+			writer = new PrintWriter(processingEnv.getFiler().createSourceFile(qualifiedName, element).openWriter());
+			writer.print("// Generated by " + ChainAnnotationProcessor.class.getName() + ". Do not edit.\n");
+			if (0 != packageName.length()) {
+				writer.print("package " + packageName + ";\n\n");
+			}
+			writer.print("/**\n * Chain of " + stages.size() + " stages, generated from {@link "
+					+ element.getQualifiedName() + "}.\n */\n");
+			writer.print(element.getModifiers().contains(Modifier.PUBLIC) ? "public " : "");
+			writer.print("final class " + name + " implements " + implemented + " {\n\n");
+			for (int i = 0; i < stages.size(); i++) {
+				writer.print("\tprivate final " + stages.get(i).getTypeName() + " " + STAGE + i + ";\n\n");
+			}
+			if (isInstantiable(stages, packageName)) {
+				writer.print("\tpublic " + name + "() {\n\t\tthis(");
+				for (int i = 0; i < stages.size(); i++) {
+					writer.print((0 == i ? "" : ", ") + "new " + stages.get(i).getTypeName() + "()");
+				}
+				writer.print(");\n\t}\n\n");
+			}
+			writer.print("\tpublic " + name + "(");
+			for (int i = 0; i < stages.size(); i++) {
+				writer.print((0 == i ? "" : ", ") + stages.get(i).getTypeName() + " " + STAGE + i);
+			}
+			writer.print(") throws IllegalArgumentException {\n");
+			for (int i = 0; i < stages.size(); i++) {
+				writer.print("\t\tif (null == " + STAGE + i + ") {\n\t\t\tthrow new IllegalArgumentException(\""
+						+ STAGE + i + " is null\");\n\t\t}\n");
+			}
+			for (int i = 0; i < stages.size(); i++) {
+				writer.print("\t\tthis." + STAGE + i + " = " + STAGE + i + ";\n");
+			}
+			writer.print("\t}\n\n");
+			writer.print(method);
+			writer.print("\n}\n");
+		} catch (IOException e) {
+			throw new InvalidChainException("failed to write " + qualifiedName + ": " + e.getMessage());
+		} finally {
+			if (null != writer) {
+				writer.close();
+			}
+		}
+	}
+
+	private String getTestMethod(TypeMirror input, TypeMirror value, List<ChainStage> transformations,
+			List<ChainStage> predicates) {
+		StringBuilder builder = new StringBuilder();
+		builder.append("\t@Override\n\tpublic boolean test(" + input + " subject) {\n");
+		String argument = "subject";
+		if (!transformations.isEmpty()) {
+			builder.append("\t\t" + value + " value;\n");
+			builder.append("\t\ttry {\n\t\t\tvalue = " + getCalls(transformations, "subject") + ";\n");
+			if (containsKind(transformations, Kind.CONVERTER)) {
+				builder.append("\t\t} catch (" + ConversionException.class.getName() + " e) {\n");
+				builder.append("\t\t\treturn false;\n");
+			}
+			if (containsKind(transformations, Kind.PROCESSOR)) {
+				builder.append("\t\t} catch (" + ProcessingException.class.getName() + " e) {\n");
+				builder.append("\t\t\treturn false;\n");
+			}
+			builder.append("\t\t}\n");
+			argument = "value";
+		}
+		builder.append("\t\treturn ");
+		int offset = transformations.size();
+		for (int i = 0; i < predicates.size(); i++) {
+			builder.append((0 == i ? "" : " && ") + STAGE + (offset + i) + ".test(" + argument + ")");
+		}
+		builder.append(";\n\t}\n");
+		return builder.toString();
+	}
+
+	private String getConvertMethod(TypeMirror input, TypeMirror output, List<ChainStage> transformations) {
+		StringBuilder builder = new StringBuilder();
+		builder.append("\t@Override\n\tpublic " + output + " convert(" + input + " from) throws "
+				+ ConversionException.class.getName() + " {\n");
+		if (containsKind(transformations, Kind.PROCESSOR)) {
+			builder.append("\t\ttry {\n\t\t\treturn " + getCalls(transformations, "from") + ";\n");
+			builder.append("\t\t} catch (" + ProcessingException.class.getName() + " e) {\n");
+			builder.append("\t\t\tthrow new " + ConversionException.class.getName() + "(e);\n\t\t}\n");
+		} else {
+			builder.append("\t\treturn " + getCalls(transformations, "from") + ";\n");
+		}
+		builder.append("\t}\n");
+		return builder.toString();
+	}
+
+	private boolean containsKind(List<ChainStage> transformations, Kind kind) {
+		for (ChainStage transformation : transformations) {
+			if (kind == transformation.getKind()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private String getCalls(List<ChainStage> transformations, String argument) {
+		String calls = argument;
+		for (int i = 0; i < transformations.size(); i++) {
+			calls = STAGE + i + "." + transformations.get(i).getKind().getMethod() + "(" + calls + ")";
+		}
+		return calls;
+	}
+
+	private TypeMirror getSubject(List<ChainStage> predicates) throws InvalidChainException {
+		for (ChainStage candidate : predicates) {
+			boolean mostSpecific = true;
+			for (ChainStage predicate : predicates) {
+				mostSpecific &= types.isAssignable(candidate.getInput(), predicate.getInput());
+			}
+			if (mostSpecific) {
+				return candidate.getInput();
+			}
+		}
+		throw new InvalidChainException("predicates have no common subject type");
+	}
+
+	private boolean isProcessorChain(List<ChainStage> transformations) {
+		TypeMirror value = transformations.get(0).getInput();
+		for (ChainStage transformation : transformations) {
+			if (Kind.PROCESSOR != transformation.getKind() || !types.isSameType(value, transformation.getInput())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void checkAssignable(TypeMirror value, ChainStage stage) throws InvalidChainException {
+		if (!types.isAssignable(value, stage.getInput())) {
+			throw new InvalidChainException(value + " is not assignable to " + stage.getInput() + ", the input of "
+					+ stage.getTypeName());
+		}
+	}
+
+	private boolean isInstantiable(List<ChainStage> stages, String packageName) {
+		for (ChainStage stage : stages) {
+			TypeElement stageElement = stage.getElement();
+			if (ElementKind.CLASS != stageElement.getKind() || stageElement.getModifiers().contains(Modifier.ABSTRACT)) {
+				return false;
+			}
+			if (NestingKind.MEMBER == stageElement.getNestingKind()
+					&& !stageElement.getModifiers().contains(Modifier.STATIC)) {
+				return false;
+			}
+			boolean instantiable = false;
+			for (ExecutableElement constructor : ElementFilter.constructorsIn(stageElement.getEnclosedElements())) {
+				instantiable |= constructor.getParameters().isEmpty() && isAccessible(constructor, packageName);
+			}
+			if (!instantiable) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean isAccessible(Element element, String packageName) {
+		Set<Modifier> modifiers = element.getModifiers();
+		if (modifiers.contains(Modifier.PUBLIC)) {
+			return true;
+		} else if (modifiers.contains(Modifier.PRIVATE)) {
+			return false;
+		} else {
+			return packageName.equals(getPackageName(element));
+		}
+	}
+
+	private String getPackageName(Element element) {
+		PackageElement packageElement = elements.getPackageOf(element);
+		return packageElement.isUnnamed() ? "" : packageElement.getQualifiedName().toString();
+	}
+
+	private static final class InvalidChainException extends Exception {
+
+		private static final long serialVersionUID = 4851306211983620594L;
+
+		public InvalidChainException(String message) {
+			super(message);
+		}
+
+	}
+
+}
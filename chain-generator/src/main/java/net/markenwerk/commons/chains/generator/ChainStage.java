@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2016 Torsten Krause, Markenwerk GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.markenwerk.commons.chains.generator;
+
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeMirror;
+
+/**
+ * A {@link ChainStage} describes a single stage of a chain, i.e. the class of
+ * the stage, the kind of the stage and the types of the values that are
+ * consumed and produced by the stage.
+ *
+ * @author Torsten Krause (tk at markenwerk dot net)
+ * @since 4.1.0
+ */
+final class ChainStage {
+
+	enum Kind {
+
+		CONVERTER("convert"),
+
+		PROCESSOR("process"),
+
+		PREDICATE("test");
+
+		private final String method;
+
+		private Kind(String method) {
+			this.method = method;
+		}
+
+		public String getMethod() {
+			return method;
+		}
+
+	}
+
+	private final TypeElement element;
+
+	private final Kind kind;
+
+	private final TypeMirror input;
+
+	private final TypeMirror output;
+
+	public ChainStage(TypeElement element, Kind kind, TypeMirror input, TypeMirror output) {
+		this.element = element;
+		this.kind = kind;
+		this.input = input;
+		this.output = output;
+	}
+
+	public TypeElement getElement() {
+		return element;
+	}
+
+	public Kind getKind() {
+		return kind;
+	}
+
+	public TypeMirror getInput() {
+		return input;
+	}
+
+	public TypeMirror getOutput() {
+		return output;
+	}
+
+	public String getTypeName() {
+		return element.getQualifiedName().toString();
+	}
+
+}
@@ -0,0 +1,329 @@
+/*
+ * Copyright (c) 2016 Torsten Krause, Markenwerk GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.markenwerk.commons.chains.generator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Collections;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaCompiler.CompilationTask;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.markenwerk.commons.chains.Chain;
+import net.markenwerk.commons.exceptions.ConversionException;
+import net.markenwerk.commons.exceptions.ProcessingException;
+import net.markenwerk.commons.interfaces.Converter;
+import net.markenwerk.commons.interfaces.Predicate;
+import net.markenwerk.commons.interfaces.Processor;
+
+@SuppressWarnings("javadoc")
+public class ChainAnnotationProcessorTests {
+
+	private static final String STAGES = "package chains;\n\n"
+			+ "import net.markenwerk.commons.exceptions.ConversionException;\n"
+			+ "import net.markenwerk.commons.exceptions.ProcessingException;\n"
+			+ "import net.markenwerk.commons.interfaces.Converter;\n"
+			+ "import net.markenwerk.commons.interfaces.Predicate;\n"
+			+ "import net.markenwerk.commons.interfaces.Processor;\n\n"
+			+ "public class Stages {\n"
+			+ "	public static final class Trimming implements Converter<String, String> {\n"
+			+ "		public String convert(String from) {\n"
+			+ "			return from.trim();\n"
+			+ "		}\n"
+			+ "	}\n"
+			+ "	public static final class Parsing implements Converter<String, Integer> {\n"
+			+ "		public Integer convert(String from) throws ConversionException {\n"
+			+ "			try {\n"
+			+ "				return Integer.valueOf(from);\n"
+			+ "			} catch (NumberFormatException e) {\n"
+			+ "				throw new ConversionException(e);\n"
+			+ "			}\n"
+			+ "		}\n"
+			+ "	}\n"
+			+ "	public static final class Failing implements Converter<String, Integer> {\n"
+			+ "		public Integer convert(String from) {\n"
+			+ "			throw new IllegalStateException(from);\n"
+			+ "		}\n"
+			+ "	}\n"
+			+ "	public static final class Negating implements Processor<Integer> {\n"
+			+ "		public Integer process(Integer value) {\n"
+			+ "			return -value;\n"
+			+ "		}\n"
+			+ "	}\n"
+			+ "	public static final class Checking implements Processor<Integer> {\n"
+			+ "		public Integer process(Integer value) throws ProcessingException {\n"
+			+ "			if (value < 0) {\n"
+			+ "				throw new ProcessingException(\"negative\");\n"
+			+ "			}\n"
+			+ "			return value;\n"
+			+ "		}\n"
+			+ "	}\n"
+			+ "	public static final class Positive implements Predicate<Integer> {\n"
+			+ "		public boolean test(Integer subject) {\n"
+			+ "			return 0 < subject;\n"
+			+ "		}\n"
+			+ "	}\n"
+			+ "	public static final class Even implements Predicate<Integer> {\n"
+			+ "		public boolean test(Integer subject) {\n"
+			+ "			return 0 == subject % 2;\n"
+			+ "		}\n"
+			+ "	}\n"
+			+ "}\n";
+
+	private File directory;
+
+	private DiagnosticCollector<JavaFileObject> diagnostics;
+
+	@Before
+	public void prepareDirectory() throws IOException {
+		directory = File.createTempFile("chains", "");
+		directory.delete();
+		directory.mkdirs();
+	}
+
+	@After
+	public void deleteDirectory() {
+		delete(directory);
+	}
+
+	@Test
+	public void convert_converterChain() throws Exception {
+		assertTrue(compile("Parse", "@Chain({ Stages.Trimming.class, Stages.Parsing.class })"));
+
+		Converter<String, Integer> chain = instantiate("ParseChain");
+
+		assertEquals(Integer.valueOf(42), chain.convert(" 42 "));
+	}
+
+	@Test
+	public void convert_conversionFailure() throws Exception {
+		assertTrue(compile("Parse", "@Chain({ Stages.Trimming.class, Stages.Parsing.class })"));
+
+		Converter<String, Integer> chain = instantiate("ParseChain");
+
+		try {
+			chain.convert(" x ");
+			fail();
+		} catch (ConversionException e) {
+			assertTrue(e.getCause() instanceof NumberFormatException);
+		}
+	}
+
+	@Test
+	public void convert_processingFailureWrapped() throws Exception {
+		assertTrue(compile("Check", "@Chain({ Stages.Parsing.class, Stages.Checking.class })"));
+
+		Converter<String, Integer> chain = instantiate("CheckChain");
+
+		assertEquals(Integer.valueOf(1), chain.convert("1"));
+		try {
+			chain.convert("-1");
+			fail();
+		} catch (ConversionException e) {
+			assertTrue(e.getCause() instanceof ProcessingException);
+		}
+	}
+
+	@Test
+	public void process_processorChain() throws Exception {
+		assertTrue(compile("Negate", "@Chain({ Stages.Negating.class, Stages.Checking.class })"));
+
+		Object chain = instantiate("NegateChain");
+
+		assertTrue(chain instanceof Processor);
+		assertFalse(chain instanceof Converter);
+		assertEquals(Integer.valueOf(3), this.<Processor<Integer>> cast(chain).process(-3));
+	}
+
+	@Test
+	public void test_predicateChain() throws Exception {
+		assertTrue(compile("PositiveEven", "@Chain({ Stages.Positive.class, Stages.Even.class })"));
+
+		Predicate<Integer> chain = instantiate("PositiveEvenChain");
+
+		assertTrue(chain.test(4));
+		assertFalse(chain.test(3));
+		assertFalse(chain.test(-2));
+	}
+
+	@Test
+	public void test_conversionFailure() throws Exception {
+		assertTrue(compile("PositiveInteger",
+				"@Chain({ Stages.Trimming.class, Stages.Parsing.class, Stages.Positive.class })"));
+
+		Predicate<String> chain = instantiate("PositiveIntegerChain");
+
+		assertTrue(chain.test(" 7 "));
+		assertFalse(chain.test(" -7 "));
+		assertFalse(chain.test(" x "));
+	}
+
+	@Test
+	public void test_processingFailure() throws Exception {
+		assertTrue(compile("Checked", "@Chain({ Stages.Parsing.class, Stages.Checking.class, Stages.Even.class })"));
+
+		Predicate<String> chain = instantiate("CheckedChain");
+
+		assertTrue(chain.test("2"));
+		assertFalse(chain.test("-2"));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void test_otherFailurePropagated() throws Exception {
+		assertTrue(compile("Failed", "@Chain({ Stages.Failing.class, Stages.Positive.class })"));
+
+		Predicate<String> chain = instantiate("FailedChain");
+
+		chain.test("1");
+	}
+
+	@Test
+	public void create_customName() throws Exception {
+		assertTrue(compile("Positive", "@Chain(value = { Stages.Positive.class }, name = \"Positives\")"));
+
+		Predicate<Integer> chain = instantiate("Positives");
+
+		assertTrue(chain.test(1));
+	}
+
+	@Test
+	public void create_invalidName() throws Exception {
+		assertFalse(compile("Positive", "@Chain(value = { Stages.Positive.class }, name = \"class\")"));
+
+		assertTrue(getErrors().contains("class is not a valid class name"));
+	}
+
+	@Test
+	public void create_noStages() throws Exception {
+		assertFalse(compile("Empty", "@Chain({})"));
+
+		assertTrue(getErrors().contains("chain has no stages"));
+	}
+
+	@Test
+	public void create_noStage() throws Exception {
+		assertFalse(compile("Strings", "@Chain({ String.class })"));
+
+		assertTrue(getErrors().contains("java.lang.String implements neither Converter, Processor nor Predicate"));
+	}
+
+	@Test
+	public void create_mismatchedTypes() throws Exception {
+		assertFalse(compile("Mismatch", "@Chain({ Stages.Parsing.class, Stages.Trimming.class })"));
+
+		assertTrue(getErrors().contains("java.lang.Integer is not assignable to java.lang.String"));
+	}
+
+	@Test
+	public void create_predicateFollowedByConverter() throws Exception {
+		assertFalse(compile("Misordered", "@Chain({ Stages.Positive.class, Stages.Negating.class })"));
+
+		assertTrue(getErrors().contains("chains.Stages.Negating, which is not a Predicate"));
+	}
+
+	private boolean compile(String name, String annotation) throws Exception {
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		Assume.assumeNotNull(compiler);
+		diagnostics = new DiagnosticCollector<JavaFileObject>();
+		StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, null);
+		try {
+			File library = new File(Chain.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+			fileManager.setLocation(StandardLocation.CLASS_PATH, Collections.singleton(library));
+			fileManager.setLocation(StandardLocation.CLASS_OUTPUT, Collections.singleton(directory));
+			fileManager.setLocation(StandardLocation.SOURCE_OUTPUT, Collections.singleton(directory));
+			File stages = write("Stages", STAGES);
+			File chain = write(name, "package chains;\n\nimport net.markenwerk.commons.chains.Chain;\n\n" + annotation
+					+ "\npublic interface " + name + " {\n}\n");
+			CompilationTask task = compiler.getTask(null, fileManager, diagnostics, null, null,
+					fileManager.getJavaFileObjects(stages, chain));
+			task.setProcessors(Collections.singleton(new ChainAnnotationProcessor()));
+			return task.call();
+		} finally {
+			fileManager.close();
+		}
+	}
+
+	private File write(String name, String source) throws IOException {
+		File file = new File(directory, "chains/" + name + ".java");
+		file.getParentFile().mkdirs();
+		Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+		try {
+			writer.write(source);
+		} finally {
+			writer.close();
+		}
+		return file;
+	}
+
+	private <Type> Type instantiate(String name) throws Exception {
+		URL[] urls = new URL[] { directory.toURI().toURL() };
+		ClassLoader classLoader = new URLClassLoader(urls, getClass().getClassLoader());
+		return cast(classLoader.loadClass("chains." + name).newInstance());
+	}
+
+	@SuppressWarnings("unchecked")
+	private <Type> Type cast(Object object) {
+		return (Type) object;
+	}
+
+	private String getErrors() {
+		StringBuilder builder = new StringBuilder();
+		for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+			if (Diagnostic.Kind.ERROR == diagnostic.getKind()) {
+				builder.append(diagnostic.getMessage(null)).append('\n');
+			}
+		}
+		return builder.toString();
+	}
+
+	private static void delete(File file) {
+		File[] files = file.listFiles();
+		if (null != files) {
+			for (File child : files) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2016 Torsten Krause, Markenwerk GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.markenwerk.commons.bootstrappers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link BootstrapReport} reports the time that a {@link ParallelBootstrapper}
+ * took to bootstrap and the time that every {@link BootstrappedProvider} took
+ * to provide it's product.
+ *
+ * @author Torsten Krause (tk at markenwerk dot net)
+ * @since 4.1.0
+ */
+public final class BootstrapReport {
+
+	private final long totalTime;
+
+	private final Map<String, Long> initializationTimes;
+
+	BootstrapReport(long totalTime, Map<String, Long> initializationTimes) {
+		this.totalTime = totalTime;
+		this.initializationTimes = initializationTimes;
+	}
+
+	/**
+	 * Returns the time that the {@link ParallelBootstrapper} took to
+	 * bootstrap.
+	 *
+	 * @param unit
+	 *            The {@link TimeUnit} to return the time in.
+	 * @return The total time.
+	 * @throws IllegalArgumentException
+	 *             If the given {@link TimeUnit} is {@literal null}.
+	 */
+	public long getTotalTime(TimeUnit unit) throws IllegalArgumentException {
+		if (null == unit) {
+			throw new IllegalArgumentException("unit is null");
+		}
+		return unit.convert(totalTime, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Returns the time that the {@link BootstrappedProvider} with the given
+	 * name took to provide it's product.
+	 *
+	 * @param name
+	 *            The name of the {@link BootstrappedProvider}.
+	 * @param unit
+	 *            The {@link TimeUnit} to return the time in.
+	 * @return The initialization time.
+	 * @throws IllegalArgumentException
+	 *             If there is no {@link BootstrappedProvider} with the given
+	 *             name or if the given {@link TimeUnit} is {@literal null}.
+	 */
+	public long getInitializationTime(String name, TimeUnit unit) throws IllegalArgumentException {
+		Long initializationTime = initializationTimes.get(name);
+		if (null == initializationTime) {
+			throw new IllegalArgumentException("no provider named " + name);
+		}
+		if (null == unit) {
+			throw new IllegalArgumentException("unit is null");
+		}
+		return unit.convert(initializationTime, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Returns the names of all {@link BootstrappedProvider
+	 * BootstrappedProviders}, ordered by descending initialization time.
+	 *
+	 * @return The names of all {@link BootstrappedProvider
+	 *         BootstrappedProviders}.
+	 */
+	public List<String> getNames() {
+		List<String> names = new ArrayList<String>(initializationTimes.keySet());
+		Collections.sort(names, new Comparator<String>() {
+
+			@Override
+			public int compare(String first, String second) {
+				long firstTime = initializationTimes.get(first);
+				long secondTime = initializationTimes.get(second);
+				return firstTime > secondTime ? -1 : firstTime < secondTime ? 1 : 0;
+			}
+
+		});
+		return names;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("bootstrapped in ").append(getTotalTime(TimeUnit.MILLISECONDS)).append(" ms");
+		for (String name : getNames()) {
+			builder.append("\n  ").append(name).append(": ")
+					.append(getInitializationTime(name, TimeUnit.MILLISECONDS)).append(" ms");
+		}
+		return builder.toString();
+	}
+
+}
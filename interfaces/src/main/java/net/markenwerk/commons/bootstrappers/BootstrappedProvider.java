@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2016 Torsten Krause, Markenwerk GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.markenwerk.commons.bootstrappers;
+
+import java.util.List;
+
+import net.markenwerk.commons.exceptions.ProvisioningException;
+import net.markenwerk.commons.interfaces.Provider;
+
+/**
+ * A {@link BootstrappedProvider} is a {@link Provider} that has been added to
+ * a {@link ParallelBootstrapper} and that remembers the product of another
+ * {@link Provider}, once it has been provided successfully.
+ *
+ * <p>
+ * The product is usually provided while the {@link ParallelBootstrapper}
+ * bootstraps. If the product is requested before, it is provided on demand.
+ * The other {@link Provider} is called at most once successfully, even if
+ * the product is requested concurrently. If it fails, it is called again on
+ * the next request.
+ *
+ * @param <Product>
+ *            The type of the product.
+ * @author Torsten Krause (tk at markenwerk dot net)
+ * @since 4.1.0
+ */
+public final class BootstrappedProvider<Product> implements Provider<Product> {
+
+	private final String name;
+
+	private final Provider<? extends Product> provider;
+
+	private final List<String> dependencies;
+
+	private volatile boolean provided;
+
+	private Product product;
+
+	private long initializationTime;
+
+	BootstrappedProvider(String name, Provider<? extends Product> provider, List<String> dependencies) {
+		this.name = name;
+		this.provider = provider;
+		this.dependencies = dependencies;
+	}
+
+	@Override
+	public Product provide() throws ProvisioningException {
+		if (!provided) {
+			synchronized (this) {
+				if (!provided) {
+					long start = System.nanoTime();
+					product = provider.provide();
+					initializationTime = System.nanoTime() - start;
+					provided = true;
+				}
+			}
+		}
+		return product;
+	}
+
+	/**
+	 * Returns the name of this {@link BootstrappedProvider}.
+	 *
+	 * @return The name.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns the names of the {@link BootstrappedProvider BootstrappedProviders}
+	 * this {@link BootstrappedProvider} depends on.
+	 *
+	 * @return The names of the dependencies.
+	 */
+	public List<String> getDependencies() {
+		return dependencies;
+	}
+
+	/**
+	 * Returns whether the product has already been provided.
+	 *
+	 * @return Whether the product has already been provided.
+	 */
+	public boolean isProvided() {
+		return provided;
+	}
+
+	long getInitializationTime() {
+		return provided ? initializationTime : -1;
+	}
+
+}
@@ -0,0 +1,341 @@
+/*
+ * Copyright (c) 2016 Torsten Krause, Markenwerk GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.markenwerk.commons.bootstrappers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import net.markenwerk.commons.exceptions.ProvisioningException;
+import net.markenwerk.commons.interfaces.Provider;
+
+/**
+ * A {@link ParallelBootstrapper} initializes a graph of {@link Provider
+ * Providers} with declared dependencies, by calling every {@link Provider}
+ * once all of it's dependencies have been initialized. Independent
+ * {@link Provider Providers} are called in parallel, using a given
+ * {@link Executor}.
+ *
+ * <pre>
+ * ParallelBootstrapper bootstrapper = new ParallelBootstrapper(executor);
+ * final Provider&lt;Configuration&gt; configuration = bootstrapper.add("configuration", configurationProvider);
+ * Provider&lt;DataSource&gt; dataSource = bootstrapper.add("dataSource", new Provider&lt;DataSource&gt;() {
+ * 	public DataSource provide() {
+ * 		return createDataSource(configuration.provide());
+ * 	}
+ * }, "configuration");
+ * BootstrapReport report = bootstrapper.bootstrap();
+ * </pre>
+ *
+ * <p>
+ * Every {@link Provider} is wrapped in a {@link BootstrappedProvider}, that
+ * remembers the product. {@link Provider Providers} that depend on other
+ * {@link Provider Providers} should use the corresponding
+ * {@link BootstrappedProvider BootstrappedProviders}, which return the
+ * remembered product immediately.
+ *
+ * <p>
+ * Before any {@link Provider} is called, all dependencies are resolved by
+ * name and the graph is checked for cycles. If a {@link Provider} fails, no
+ * further {@link Provider Providers} are started, the {@link Provider
+ * Providers} that are already running are awaited and the failure is
+ * reported. {@link Provider Providers} that haven't been started are skipped
+ * and never called.
+ *
+ * @author Torsten Krause (tk at markenwerk dot net)
+ * @since 4.1.0
+ */
+public final class ParallelBootstrapper {
+
+	private final Map<String, BootstrappedProvider<?>> providers = new LinkedHashMap<String, BootstrappedProvider<?>>();
+
+	private final Executor executor;
+
+	private boolean bootstrapped;
+
+	/**
+	 * Creates a new {@link ParallelBootstrapper}.
+	 *
+	 * @param executor
+	 *            The {@link Executor} to call the {@link Provider Providers}
+	 *            with.
+	 * @throws IllegalArgumentException
+	 *             If the given {@link Executor} is {@literal null}.
+	 */
+	public ParallelBootstrapper(Executor executor) throws IllegalArgumentException {
+		if (null == executor) {
+			throw new IllegalArgumentException("executor is null");
+		}
+		this.executor = executor;
+	}
+
+	/**
+	 * Adds a {@link Provider}.
+	 *
+	 * @param <Product>
+	 *            The type of the product.
+	 * @param name
+	 *            The unique name of the {@link Provider}.
+	 * @param provider
+	 *            The {@link Provider} to be added.
+	 * @param dependencies
+	 *            The names of the {@link Provider Providers} that must be
+	 *            initialized before the given {@link Provider} is called.
+	 *            These may be added later.
+	 * @return The {@link BootstrappedProvider} that remembers the product of
+	 *         the given {@link Provider}.
+	 * @throws IllegalArgumentException
+	 *             If the given name, the given {@link Provider}, the given
+	 *             array of dependencies or one of the given dependencies is
+	 *             {@literal null} or if a {@link Provider} with the given name
+	 *             has already been added.
+	 * @throws IllegalStateException
+	 *             If this {@link ParallelBootstrapper} has already
+	 *             bootstrapped.
+	 */
+	public synchronized <Product> BootstrappedProvider<Product> add(String name, Provider<? extends Product> provider,
+			String... dependencies) throws IllegalArgumentException, IllegalStateException {
+		if (null == name) {
+			throw new IllegalArgumentException("name is null");
+		}
+		if (null == provider) {
+			throw new IllegalArgumentException("provider is null");
+		}
+		if (null == dependencies) {
+			throw new IllegalArgumentException("dependencies is null");
+		}
+		for (String dependency : dependencies) {
+			if (null == dependency) {
+				throw new IllegalArgumentException("dependencies contains null");
+			}
+		}
+		if (bootstrapped) {
+			throw new IllegalStateException("already bootstrapped");
+		}
+		if (providers.containsKey(name)) {
+			throw new IllegalArgumentException("a provider named " + name + " has already been added");
+		}
+		List<String> dependencyList = Collections.unmodifiableList(new ArrayList<String>(Arrays.asList(dependencies)));
+		BootstrappedProvider<Product> bootstrappedProvider = new BootstrappedProvider<Product>(name, provider,
+				dependencyList);
+		providers.put(name, bootstrappedProvider);
+		return bootstrappedProvider;
+	}
+
+	/**
+	 * Calls all added {@link Provider Providers} and waits, until all of them
+	 * have been initialized.
+	 *
+	 * @return The {@link BootstrapReport}.
+	 * @throws IllegalStateException
+	 *             If this {@link ParallelBootstrapper} has already
+	 *             bootstrapped, if a dependency hasn't been added or if the
+	 *             dependencies contain a cycle.
+	 * @throws ProvisioningException
+	 *             If a {@link Provider} failed or if the current thread has
+	 *             been interrupted while waiting.
+	 */
+	public BootstrapReport bootstrap() throws IllegalStateException, ProvisioningException {
+		Map<String, Node> nodes = new LinkedHashMap<String, Node>();
+		synchronized (this) {
+			if (bootstrapped) {
+				throw new IllegalStateException("already bootstrapped");
+			}
+			for (BootstrappedProvider<?> provider : providers.values()) {
+				nodes.put(provider.getName(), new Node(provider));
+			}
+			for (Node node : nodes.values()) {
+				for (String dependency : node.provider.getDependencies()) {
+					Node dependencyNode = nodes.get(dependency);
+					if (null == dependencyNode) {
+						throw new IllegalStateException(node.provider.getName() + " depends on " + dependency
+								+ ", which hasn't been added");
+					}
+					node.dependencies.add(dependencyNode);
+					dependencyNode.dependents.add(node);
+				}
+				node.remainingDependencies.set(node.dependencies.size());
+			}
+			checkForCycles(nodes.values());
+			bootstrapped = true;
+		}
+
+		long start = System.nanoTime();
+		Run run = new Run(nodes.size());
+		for (Node node : nodes.values()) {
+			if (node.dependencies.isEmpty()) {
+				run.submit(node);
+			}
+		}
+		run.await();
+		long totalTime = System.nanoTime() - start;
+
+		Map<String, Long> initializationTimes = new LinkedHashMap<String, Long>();
+		for (Node node : nodes.values()) {
+			initializationTimes.put(node.provider.getName(), node.provider.getInitializationTime());
+		}
+		return new BootstrapReport(totalTime, Collections.unmodifiableMap(initializationTimes));
+	}
+
+	private static void checkForCycles(Iterable<Node> nodes) throws IllegalStateException {
+		List<Node> path = new ArrayList<Node>();
+		for (Node node : nodes) {
+			visit(node, path);
+		}
+	}
+
+	private static void visit(Node node, List<Node> path) throws IllegalStateException {
+		if (Node.VISITED == node.visitState) {
+			return;
+		} else if (Node.VISITING == node.visitState) {
+			StringBuilder cycle = new StringBuilder();
+			for (Node pathNode : path.subList(path.indexOf(node), path.size())) {
+				cycle.append(pathNode.provider.getName()).append(" -> ");
+			}
+			throw new IllegalStateException("dependencies contain a cycle: " + cycle + node.provider.getName());
+		}
+		node.visitState = Node.VISITING;
+		path.add(node);
+		for (Node dependency : node.dependencies) {
+			visit(dependency, path);
+		}
+		path.remove(path.size() - 1);
+		node.visitState = Node.VISITED;
+	}
+
+	private static final class Node {
+
+		private static final int UNVISITED = 0;
+
+		private static final int VISITING = 1;
+
+		private static final int VISITED = 2;
+
+		private final BootstrappedProvider<?> provider;
+
+		private final List<Node> dependencies = new ArrayList<Node>();
+
+		private final List<Node> dependents = new ArrayList<Node>();
+
+		private final AtomicInteger remainingDependencies = new AtomicInteger();
+
+		private int visitState = UNVISITED;
+
+		public Node(BootstrappedProvider<?> provider) {
+			this.provider = provider;
+		}
+
+	}
+
+	private final class Run {
+
+		private final AtomicReference<ProvisioningException> failure = new AtomicReference<ProvisioningException>();
+
+		private final CountDownLatch remainingNodes;
+
+		public Run(int nodes) {
+			remainingNodes = new CountDownLatch(nodes);
+		}
+
+		public void submit(final Node node) {
+			if (null != failure.get()) {
+				skip(node);
+			} else {
+				try {
+					executor.execute(new Runnable() {
+
+						@Override
+						public void run() {
+							initialize(node);
+						}
+
+					});
+				} catch (RejectedExecutionException e) {
+					fail(node, e);
+					skip(node);
+				}
+			}
+		}
+
+		private void initialize(Node node) {
+			try {
+				if (null == failure.get()) {
+					node.provider.provide();
+				}
+			} catch (RuntimeException e) {
+				fail(node, e);
+			} catch (Error e) {
+				fail(node, e);
+			} finally {
+				remainingNodes.countDown();
+				for (Node dependent : node.dependents) {
+					if (0 == dependent.remainingDependencies.decrementAndGet()) {
+						submit(dependent);
+					}
+				}
+			}
+		}
+
+		private void skip(Node node) {
+			// iterative, because the skipped part of the graph may be deep
+			List<Node> skippedNodes = new ArrayList<Node>();
+			skippedNodes.add(node);
+			while (!skippedNodes.isEmpty()) {
+				Node skippedNode = skippedNodes.remove(skippedNodes.size() - 1);
+				remainingNodes.countDown();
+				for (Node dependent : skippedNode.dependents) {
+					if (0 == dependent.remainingDependencies.decrementAndGet()) {
+						skippedNodes.add(dependent);
+					}
+				}
+			}
+		}
+
+		private void fail(Node node, Throwable cause) {
+			failure.compareAndSet(null, new ProvisioningException("failed to initialize " + node.provider.getName(),
+					cause));
+		}
+
+		public void await() throws ProvisioningException {
+			try {
+				remainingNodes.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new ProvisioningException("interrupted while bootstrapping", e);
+			}
+			ProvisioningException firstFailure = failure.get();
+			if (null != firstFailure) {
+				throw firstFailure;
+			}
+		}
+
+	}
+
+}
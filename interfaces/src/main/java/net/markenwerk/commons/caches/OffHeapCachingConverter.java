@@ -0,0 +1,413 @@
+/*
+ * Copyright (c) 2016 Torsten Krause, Markenwerk GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.markenwerk.commons.caches;
+
+import java.nio.ByteBuffer;
+
+import net.markenwerk.commons.exceptions.ConversionException;
+import net.markenwerk.commons.exceptions.ProductionException;
+import net.markenwerk.commons.interfaces.Converter;
+import net.markenwerk.commons.interfaces.Producer;
+import net.markenwerk.commons.interfaces.Translator;
+
+/**
+ * An {@link OffHeapCachingConverter} is a {@link Converter} that caches the
+ * results of another {@link Converter} outside of the Java heap.
+ *
+ * <p>
+ * Keys and results are serialized with the given {@link Translator Translators}
+ * and stored in fixed-size slots of an open-addressing hash table with linear
+ * probing, that resides in {@link ByteBuffer ByteBuffers} which are obtained
+ * from a {@link Producer}. By default, direct buffers are used, but the
+ * {@link Producer} may also yield buffers that are mapped from a file. Each
+ * slot consists of a small header (the hash of the key, a status byte, the
+ * length of the key and the length of the result), followed by the serialized
+ * key and the serialized result. Cached entries therefore neither create
+ * objects on the Java heap nor contribute to the work of the garbage collector.
+ *
+ * <p>
+ * Two keys are considered equal, if their serialized forms are equal. Entries
+ * whose serialized form doesn't fit into a slot are not cached. {@literal null}
+ * -values and {@literal null}-results are never cached.
+ *
+ * <p>
+ * If the cache is full, an entry is evicted with the clock algorithm: Every
+ * cache hit marks an entry as referenced and a clock hand that sweeps over the
+ * table evicts the first unreferenced entry, while clearing the mark of every
+ * referenced entry it passes. Evicted slots are reclaimed with backward shift
+ * deletion, such that no tombstones are necessary.
+ *
+ * <p>
+ * An {@link OffHeapCachingConverter} is thread-safe. Accesses to the table are
+ * synchronized, but the conversion of values that are not yet cached is
+ * performed outside of the lock. The given {@link Translator Translators} are
+ * only used while the lock is held and must not share their scratch buffers
+ * with each other.
+ *
+ * @param <From>
+ *            The type to convert values from.
+ * @param <To>
+ *            The type to convert values to.
+ * @author Torsten Krause (tk at markenwerk dot net)
+ * @since 4.1.0
+ */
+public final class OffHeapCachingConverter<From, To> implements Converter<From, To> {
+
+	private static final int HASH_OFFSET = 0;
+
+	private static final int FLAGS_OFFSET = 4;
+
+	private static final int KEY_LENGTH_OFFSET = 6;
+
+	private static final int VALUE_LENGTH_OFFSET = 8;
+
+	private static final int HEADER_SIZE = 10;
+
+	private static final byte OCCUPIED = 1;
+
+	private static final byte REFERENCED = 2;
+
+	private static final int MAXIMUM_SLOT_SIZE = 0xFFFF;
+
+	private static final int MAXIMUM_CAPACITY = 1 << 29;
+
+	private static final int MAXIMUM_CHUNK_SIZE = 1 << 30;
+
+	private final Converter<From, To> converter;
+
+	private final Translator<From, ByteBuffer> keyTranslator;
+
+	private final Translator<To, ByteBuffer> valueTranslator;
+
+	private final int capacity;
+
+	private final int slotSize;
+
+	private final int mask;
+
+	private final int chunkShift;
+
+	private final int chunkMask;
+
+	private final ByteBuffer[] chunks;
+
+	private int size;
+
+	private int hand;
+
+	/**
+	 * Creates a new {@link OffHeapCachingConverter} that stores entries in
+	 * direct buffers.
+	 *
+	 * @param converter
+	 *            The {@link Converter} to cache the results of.
+	 * @param keyTranslator
+	 *            The {@link Translator} to serialize keys with.
+	 * @param valueTranslator
+	 *            The {@link Translator} to serialize and deserialize results
+	 *            with.
+	 * @param capacity
+	 *            The maximum number of cached entries.
+	 * @param slotSize
+	 *            The size of a slot in bytes, including a header of ten bytes.
+	 * @throws IllegalArgumentException
+	 *             If any of the given values is {@literal null}, if the given
+	 *             capacity is not positive or too large or if the given slot
+	 *             size is too small or too large.
+	 */
+	public OffHeapCachingConverter(Converter<From, To> converter, Translator<From, ByteBuffer> keyTranslator,
+			Translator<To, ByteBuffer> valueTranslator, int capacity, int slotSize) throws IllegalArgumentException {
+		this(converter, keyTranslator, valueTranslator, capacity, slotSize, new DirectBufferProducer());
+	}
+
+	/**
+	 * Creates a new {@link OffHeapCachingConverter} that stores entries in
+	 * buffers that are obtained from the given {@link Producer}.
+	 *
+	 * @param converter
+	 *            The {@link Converter} to cache the results of.
+	 * @param keyTranslator
+	 *            The {@link Translator} to serialize keys with.
+	 * @param valueTranslator
+	 *            The {@link Translator} to serialize and deserialize results
+	 *            with.
+	 * @param capacity
+	 *            The maximum number of cached entries.
+	 * @param slotSize
+	 *            The size of a slot in bytes, including a header of ten bytes.
+	 * @param bufferProducer
+	 *            The {@link Producer} to obtain buffers with a capacity of at
+	 *            least the requested number of bytes from.
+	 * @throws IllegalArgumentException
+	 *             If any of the given values is {@literal null}, if the given
+	 *             capacity is not positive or too large, if the given slot size
+	 *             is too small or too large or if a buffer that has been
+	 *             obtained from the given {@link Producer} is too small.
+	 * @throws ProductionException
+	 *             If the given {@link Producer} failed to produce a buffer.
+	 */
+	public OffHeapCachingConverter(Converter<From, To> converter, Translator<From, ByteBuffer> keyTranslator,
+			Translator<To, ByteBuffer> valueTranslator, int capacity, int slotSize,
+			Producer<Integer, ByteBuffer> bufferProducer) throws IllegalArgumentException, ProductionException {
+		if (null == converter) {
+			throw new IllegalArgumentException("converter is null");
+		}
+		if (null == keyTranslator) {
+			throw new IllegalArgumentException("keyTranslator is null");
+		}
+		if (null == valueTranslator) {
+			throw new IllegalArgumentException("valueTranslator is null");
+		}
+		if (capacity <= 0 || capacity > MAXIMUM_CAPACITY) {
+			throw new IllegalArgumentException("capacity is not between 1 and " + MAXIMUM_CAPACITY);
+		}
+		if (slotSize <= HEADER_SIZE || slotSize > MAXIMUM_SLOT_SIZE) {
+			throw new IllegalArgumentException("slotSize is not between " + (HEADER_SIZE + 1) + " and "
+					+ MAXIMUM_SLOT_SIZE);
+		}
+		if (null == bufferProducer) {
+			throw new IllegalArgumentException("bufferProducer is null");
+		}
+		this.converter = converter;
+		this.keyTranslator = keyTranslator;
+		this.valueTranslator = valueTranslator;
+		this.capacity = capacity;
+		this.slotSize = slotSize;
+		int tableSize = Integer.highestOneBit(capacity + capacity / 3) << 1;
+		int slotsPerChunk = Math.min(tableSize, Integer.highestOneBit(MAXIMUM_CHUNK_SIZE / slotSize));
+		mask = tableSize - 1;
+		chunkShift = Integer.numberOfTrailingZeros(slotsPerChunk);
+		chunkMask = slotsPerChunk - 1;
+		chunks = new ByteBuffer[tableSize / slotsPerChunk];
+		for (int i = 0; i < chunks.length; i++) {
+			int chunkSize = slotsPerChunk * slotSize;
+			ByteBuffer chunk = bufferProducer.produce(chunkSize);
+			if (null == chunk || chunk.capacity() < chunkSize) {
+				throw new IllegalArgumentException("bufferProducer yielded a buffer with less than " + chunkSize
+						+ " bytes");
+			}
+			chunks[i] = chunk;
+		}
+		clear();
+	}
+
+	@Override
+	public To convert(From from) throws ConversionException {
+		if (null == from) {
+			return converter.convert(from);
+		}
+		synchronized (this) {
+			ByteBuffer key = keyTranslator.convert(from);
+			int index = find(key, hash(key));
+			if (index >= 0) {
+				ByteBuffer chunk = chunks[index >>> chunkShift];
+				int offset = (index & chunkMask) * slotSize;
+				chunk.put(offset + FLAGS_OFFSET, (byte) (OCCUPIED | REFERENCED));
+				return readValue(chunk, offset);
+			}
+		}
+		To to = converter.convert(from);
+		if (null != to) {
+			synchronized (this) {
+				store(from, to);
+			}
+		}
+		return to;
+	}
+
+	/**
+	 * Returns the number of currently cached entries.
+	 *
+	 * @return The number of currently cached entries.
+	 */
+	public synchronized int size() {
+		return size;
+	}
+
+	/**
+	 * Removes all cached entries.
+	 */
+	public synchronized void clear() {
+		for (int index = 0; index <= mask; index++) {
+			chunks[index >>> chunkShift].put((index & chunkMask) * slotSize + FLAGS_OFFSET, (byte) 0);
+		}
+		size = 0;
+		hand = 0;
+	}
+
+	synchronized int getIndex(From from) throws ConversionException {
+		return hash(keyTranslator.convert(from)) & mask;
+	}
+
+	private void store(From from, To to) throws ConversionException {
+		ByteBuffer key = keyTranslator.convert(from);
+		int hash = hash(key);
+		int keyLength = key.remaining();
+		if (HEADER_SIZE + keyLength > slotSize) {
+			return;
+		}
+		ByteBuffer value = valueTranslator.convert(to);
+		int valueLength = value.remaining();
+		if (HEADER_SIZE + keyLength + valueLength > slotSize) {
+			return;
+		}
+		int index = find(key, hash);
+		if (index < 0) {
+			if (size == capacity) {
+				evict();
+				index = find(key, hash);
+			}
+			index = -1 - index;
+			size++;
+		}
+		ByteBuffer chunk = chunks[index >>> chunkShift];
+		int offset = (index & chunkMask) * slotSize;
+		chunk.putInt(offset + HASH_OFFSET, hash);
+		chunk.put(offset + FLAGS_OFFSET, (byte) (OCCUPIED | REFERENCED));
+		chunk.putShort(offset + KEY_LENGTH_OFFSET, (short) keyLength);
+		chunk.putShort(offset + VALUE_LENGTH_OFFSET, (short) valueLength);
+		chunk.position(offset + HEADER_SIZE);
+		chunk.put(key);
+		chunk.put(value);
+		chunk.position(0);
+	}
+
+	private To readValue(ByteBuffer chunk, int offset) throws ConversionException {
+		int start = offset + HEADER_SIZE + (chunk.getShort(offset + KEY_LENGTH_OFFSET) & 0xFFFF);
+		int end = start + (chunk.getShort(offset + VALUE_LENGTH_OFFSET) & 0xFFFF);
+		chunk.position(start);
+		chunk.limit(end);
+		try {
+			return valueTranslator.revert(chunk);
+		} finally {
+			chunk.limit(chunk.capacity());
+			chunk.position(0);
+		}
+	}
+
+	private int find(ByteBuffer key, int hash) {
+		int index = hash & mask;
+		while (true) {
+			ByteBuffer chunk = chunks[index >>> chunkShift];
+			int offset = (index & chunkMask) * slotSize;
+			if (0 == (chunk.get(offset + FLAGS_OFFSET) & OCCUPIED)) {
+				return -1 - index;
+			} else if (hash == chunk.getInt(offset + HASH_OFFSET) && keyEquals(chunk, offset, key)) {
+				return index;
+			}
+			index = (index + 1) & mask;
+		}
+	}
+
+	private static boolean keyEquals(ByteBuffer chunk, int offset, ByteBuffer key) {
+		int length = key.remaining();
+		if (length != (chunk.getShort(offset + KEY_LENGTH_OFFSET) & 0xFFFF)) {
+			return false;
+		}
+		int start = offset + HEADER_SIZE;
+		int position = key.position();
+		for (int i = 0; i < length; i++) {
+			if (chunk.get(start + i) != key.get(position + i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int hash(ByteBuffer key) {
+		int hash = 0x811C9DC5;
+		for (int i = key.position(), n = key.limit(); i < n; i++) {
+			hash = (hash ^ key.get(i)) * 0x01000193;
+		}
+		hash ^= hash >>> 16;
+		hash *= 0x85EBCA6B;
+		hash ^= hash >>> 13;
+		return hash;
+	}
+
+	private void evict() {
+		while (true) {
+			ByteBuffer chunk = chunks[hand >>> chunkShift];
+			int offset = (hand & chunkMask) * slotSize;
+			byte flags = chunk.get(offset + FLAGS_OFFSET);
+			if (0 != (flags & OCCUPIED)) {
+				if (0 != (flags & REFERENCED)) {
+					chunk.put(offset + FLAGS_OFFSET, OCCUPIED);
+				} else {
+					remove(hand);
+					return;
+				}
+			}
+			hand = (hand + 1) & mask;
+		}
+	}
+
+	private void remove(int index) {
+		int current = index;
+		while (true) {
+			current = (current + 1) & mask;
+			ByteBuffer chunk = chunks[current >>> chunkShift];
+			int offset = (current & chunkMask) * slotSize;
+			if (0 == (chunk.get(offset + FLAGS_OFFSET) & OCCUPIED)) {
+				break;
+			}
+			int home = chunk.getInt(offset + HASH_OFFSET) & mask;
+			boolean reachable = index <= current ? index < home && home <= current : index < home || home <= current;
+			if (!reachable) {
+				move(current, index);
+				index = current;
+			}
+		}
+		chunks[index >>> chunkShift].put((index & chunkMask) * slotSize + FLAGS_OFFSET, (byte) 0);
+		size--;
+	}
+
+	private void move(int fromIndex, int toIndex) {
+		ByteBuffer fromChunk = chunks[fromIndex >>> chunkShift];
+		int fromOffset = (fromIndex & chunkMask) * slotSize;
+		ByteBuffer toChunk = chunks[toIndex >>> chunkShift];
+		int toOffset = (toIndex & chunkMask) * slotSize;
+		int length = HEADER_SIZE + (fromChunk.getShort(fromOffset + KEY_LENGTH_OFFSET) & 0xFFFF)
+				+ (fromChunk.getShort(fromOffset + VALUE_LENGTH_OFFSET) & 0xFFFF);
+		int i = 0;
+		for (; i + 8 <= length; i += 8) {
+			toChunk.putLong(toOffset + i, fromChunk.getLong(fromOffset + i));
+		}
+		for (; i < length; i++) {
+			toChunk.put(toOffset + i, fromChunk.get(fromOffset + i));
+		}
+	}
+
+	private static final class DirectBufferProducer implements Producer<Integer, ByteBuffer> {
+
+		@Override
+		public ByteBuffer produce(Integer capacity) throws ProductionException {
+			try {
+				return ByteBuffer.allocateDirect(capacity.intValue());
+			} catch (OutOfMemoryError e) {
+				throw new ProductionException("Failed to allocate direct buffer", e);
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2016 Torsten Krause, Markenwerk GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.markenwerk.commons.caches;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import net.markenwerk.commons.caches.ReferenceStrength.KeyedReference;
+import net.markenwerk.commons.exceptions.ConversionException;
+import net.markenwerk.commons.interfaces.Converter;
+
+/**
+ * A {@link ReferenceCachingConverter} is a {@link Converter} that caches the
+ * results of another {@link Converter} with soft or weak references, such
+ * that the cache shrinks automatically, if memory becomes scarce.
+ *
+ * <p>
+ * Every reference that has been cleared by the garbage collector is enqueued
+ * in a {@link ReferenceQueue}. The queue is drained on every call to
+ * {@link ReferenceCachingConverter#convert(Object)} and only the corresponding
+ * stale entries are removed, such that no scan of the cache is necessary.
+ *
+ * <p>
+ * {@literal null}-values and {@literal null}-results are never cached. A
+ * {@link ReferenceCachingConverter} is thread-safe, if the wrapped
+ * {@link Converter} is thread-safe. Concurrent conversions of the same value
+ * may call the wrapped {@link Converter} more than once.
+ *
+ * @param <From>
+ *            The type to convert values from.
+ * @param <To>
+ *            The type to convert values to.
+ * @author Torsten Krause (tk at markenwerk dot net)
+ * @since 4.1.0
+ */
+public final class ReferenceCachingConverter<From, To> implements Converter<From, To> {
+
+	private final ConcurrentMap<From, KeyedReference<From, To>> references = new ConcurrentHashMap<From, KeyedReference<From, To>>();
+
+	private final ReferenceQueue<To> queue = new ReferenceQueue<To>();
+
+	private final Converter<From, To> converter;
+
+	private final ReferenceStrength strength;
+
+	/**
+	 * Creates a new {@link ReferenceCachingConverter}.
+	 *
+	 * @param converter
+	 *            The {@link Converter} to cache the results of.
+	 * @param strength
+	 *            The {@link ReferenceStrength} to hold cached results with.
+	 * @throws IllegalArgumentException
+	 *             If the given {@link Converter} or the given
+	 *             {@link ReferenceStrength} is {@literal null}.
+	 */
+	public ReferenceCachingConverter(Converter<From, To> converter, ReferenceStrength strength)
+			throws IllegalArgumentException {
+		if (null == converter) {
+			throw new IllegalArgumentException("converter is null");
+		}
+		if (null == strength) {
+			throw new IllegalArgumentException("strength is null");
+		}
+		this.converter = converter;
+		this.strength = strength;
+	}
+
+	@Override
+	public To convert(From from) throws ConversionException {
+		expungeStaleReferences();
+		if (null == from) {
+			return converter.convert(from);
+		}
+		KeyedReference<From, To> reference = references.get(from);
+		if (null != reference) {
+			To to = reference.get();
+			if (null != to) {
+				return to;
+			}
+		}
+		To to = converter.convert(from);
+		if (null != to) {
+			references.put(from, strength.createReference(from, to, queue));
+		}
+		return to;
+	}
+
+	/**
+	 * Returns the number of currently cached entries, including entries whose
+	 * result has been cleared, but not yet been removed.
+	 *
+	 * @return The number of currently cached entries.
+	 */
+	public int size() {
+		expungeStaleReferences();
+		return references.size();
+	}
+
+	/**
+	 * Removes all cached entries.
+	 */
+	public void clear() {
+		references.clear();
+		expungeStaleReferences();
+	}
+
+	@SuppressWarnings("unchecked")
+	Reference<To> getReference(From from) {
+		return (Reference<To>) references.get(from);
+	}
+
+	@SuppressWarnings("unchecked")
+	private void expungeStaleReferences() {
+		Reference<? extends To> reference;
+		while (null != (reference = queue.poll())) {
+			KeyedReference<From, To> keyedReference = (KeyedReference<From, To>) reference;
+			references.remove(keyedReference.getKey(), keyedReference);
+		}
+	}
+
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2016 Torsten Krause, Markenwerk GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.markenwerk.commons.caches;
+
+import java.lang.ref.Reference;
+
+import net.markenwerk.commons.exceptions.ProvisioningException;
+import net.markenwerk.commons.interfaces.Provider;
+
+/**
+ * A {@link ReferenceCachingProvider} is a {@link Provider} that caches the
+ * product of another {@link Provider} with a soft or weak reference, such that
+ * the product can be reclaimed by the garbage collector, if memory becomes
+ * scarce. If the cached product has been reclaimed, it is provided again by the
+ * wrapped {@link Provider}.
+ *
+ * <p>
+ * A {@literal null}-product is never cached. A {@link ReferenceCachingProvider}
+ * is thread-safe, if the wrapped {@link Provider} is thread-safe. Concurrent
+ * calls may call the wrapped {@link Provider} more than once.
+ *
+ * @param <Product>
+ *            The type of the values to be provided.
+ * @author Torsten Krause (tk at markenwerk dot net)
+ * @since 4.1.0
+ */
+public final class ReferenceCachingProvider<Product> implements Provider<Product> {
+
+	private final Provider<Product> provider;
+
+	private final ReferenceStrength strength;
+
+	private volatile Reference<Product> reference;
+
+	/**
+	 * Creates a new {@link ReferenceCachingProvider}.
+	 *
+	 * @param provider
+	 *            The {@link Provider} to cache the product of.
+	 * @param strength
+	 *            The {@link ReferenceStrength} to hold the cached product with.
+	 * @throws IllegalArgumentException
+	 *             If the given {@link Provider} or the given
+	 *             {@link ReferenceStrength} is {@literal null}.
+	 */
+	public ReferenceCachingProvider(Provider<Product> provider, ReferenceStrength strength)
+			throws IllegalArgumentException {
+		if (null == provider) {
+			throw new IllegalArgumentException("provider is null");
+		}
+		if (null == strength) {
+			throw new IllegalArgumentException("strength is null");
+		}
+		this.provider = provider;
+		this.strength = strength;
+	}
+
+	@Override
+	public Product provide() throws ProvisioningException {
+		Reference<Product> currentReference = reference;
+		if (null != currentReference) {
+			Product product = currentReference.get();
+			if (null != product) {
+				return product;
+			}
+		}
+		Product product = provider.provide();
+		if (null != product) {
+			reference = strength.createReference(product);
+		}
+		return product;
+	}
+
+	/**
+	 * Removes the cached product.
+	 */
+	public void clear() {
+		reference = null;
+	}
+
+	Reference<Product> getReference() {
+		return reference;
+	}
+
+}
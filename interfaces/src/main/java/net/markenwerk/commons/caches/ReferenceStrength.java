@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2016 Torsten Krause, Markenwerk GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.markenwerk.commons.caches;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+
+/**
+ * {@link ReferenceStrength} describes, how strongly a cache holds on to it's
+ * cached values.
+ *
+ * @author Torsten Krause (tk at markenwerk dot net)
+ * @since 4.1.0
+ */
+public enum ReferenceStrength {
+
+	/**
+	 * Cached values are held by {@link SoftReference SoftReferences}. They are
+	 * cleared at the discretion of the garbage collector in response to memory
+	 * demand, but are guaranteed to be cleared before an
+	 * {@link OutOfMemoryError} is thrown.
+	 */
+	SOFT {
+
+		@Override
+		<Value> Reference<Value> createReference(Value value) {
+			return new SoftReference<Value>(value);
+		}
+
+		@Override
+		<Key, Value> KeyedReference<Key, Value> createReference(Key key, Value value,
+				ReferenceQueue<? super Value> queue) {
+			return new SoftKeyedReference<Key, Value>(key, value, queue);
+		}
+
+	},
+
+	/**
+	 * Cached values are held by {@link WeakReference WeakReferences}. They are
+	 * cleared as soon as they are no longer strongly reachable elsewhere.
+	 */
+	WEAK {
+
+		@Override
+		<Value> Reference<Value> createReference(Value value) {
+			return new WeakReference<Value>(value);
+		}
+
+		@Override
+		<Key, Value> KeyedReference<Key, Value> createReference(Key key, Value value,
+				ReferenceQueue<? super Value> queue) {
+			return new WeakKeyedReference<Key, Value>(key, value, queue);
+		}
+
+	};
+
+	abstract <Value> Reference<Value> createReference(Value value);
+
+	abstract <Key, Value> KeyedReference<Key, Value> createReference(Key key, Value value,
+			ReferenceQueue<? super Value> queue);
+
+	interface KeyedReference<Key, Value> {
+
+		public Key getKey();
+
+		public Value get();
+
+	}
+
+	private static final class SoftKeyedReference<Key, Value> extends SoftReference<Value> implements
+			KeyedReference<Key, Value> {
+
+		private final Key key;
+
+		public SoftKeyedReference(Key key, Value value, ReferenceQueue<? super Value> queue) {
+			super(value, queue);
+			this.key = key;
+		}
+
+		@Override
+		public Key getKey() {
+			return key;
+		}
+
+	}
+
+	private static final class WeakKeyedReference<Key, Value> extends WeakReference<Value> implements
+			KeyedReference<Key, Value> {
+
+		private final Key key;
+
+		public WeakKeyedReference(Key key, Value value, ReferenceQueue<? super Value> queue) {
+			super(value, queue);
+			this.key = key;
+		}
+
+		@Override
+		public Key getKey() {
+			return key;
+		}
+
+	}
+
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) 2016 Torsten Krause, Markenwerk GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.markenwerk.commons.caches;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import net.markenwerk.commons.exceptions.ProcessingException;
+import net.markenwerk.commons.interfaces.Converter;
+import net.markenwerk.commons.interfaces.Processor;
+
+/**
+ * A {@link VersionedCachingProcessor} is a {@link Processor} that remembers the
+ * results of another {@link Processor}, such that values that haven't changed
+ * since they have been processed last are not processed again.
+ *
+ * <p>
+ * Every value is identified by a key and a version, which are both obtained
+ * with a {@link Converter}, e.g. the primary key and the modification
+ * timestamp of a record. If a value with the same key and the same version has
+ * been processed before, the remembered result is returned. Otherwise, the
+ * value is processed and the result replaces the remembered result for that
+ * key. Alternatively, a single fingerprint, e.g. a content hash, can be used
+ * to identify values.
+ *
+ * <p>
+ * At most a given number of results is remembered. If that number is
+ * exceeded, the least recently used result is forgotten.
+ *
+ * <p>
+ * {@literal null}-values and values with a {@literal null}-key are always
+ * processed. Remembered results are returned as they are, i.e. callers that
+ * process the same value repeatedly share the same result. A
+ * {@link VersionedCachingProcessor} is thread-safe, if the wrapped
+ * {@link Processor} and the given {@link Converter Converters} are
+ * thread-safe. The wrapped {@link Processor} is called without holding a lock,
+ * such that concurrent processing of the same value may call it more than
+ * once.
+ *
+ * @param <Value>
+ *            The type of the values to be processed.
+ * @author Torsten Krause (tk at markenwerk dot net)
+ * @since 4.1.0
+ */
+public final class VersionedCachingProcessor<Value> implements Processor<Value> {
+
+	private final Map<Object, Memo<Value>> memos;
+
+	private final Processor<Value> processor;
+
+	private final Converter<? super Value, ?> keyConverter;
+
+	private final Converter<? super Value, ?> versionConverter;
+
+	private long hits;
+
+	private long misses;
+
+	/**
+	 * Creates a new {@link VersionedCachingProcessor} that identifies values by
+	 * a fingerprint.
+	 *
+	 * @param processor
+	 *            The {@link Processor} to remember the results of.
+	 * @param fingerprintConverter
+	 *            The {@link Converter} that yields the fingerprint of a value.
+	 * @param capacity
+	 *            The maximum number of results to remember.
+	 * @throws IllegalArgumentException
+	 *             If the given {@link Processor} or the given {@link Converter}
+	 *             is {@literal null} or if the given capacity is not positive.
+	 */
+	public VersionedCachingProcessor(Processor<Value> processor, Converter<? super Value, ?> fingerprintConverter,
+			int capacity) throws IllegalArgumentException {
+		this(processor, fingerprintConverter, null, capacity);
+	}
+
+	/**
+	 * Creates a new {@link VersionedCachingProcessor} that identifies values by
+	 * a key and a version.
+	 *
+	 * @param processor
+	 *            The {@link Processor} to remember the results of.
+	 * @param keyConverter
+	 *            The {@link Converter} that yields the key of a value.
+	 * @param versionConverter
+	 *            The {@link Converter} that yields the version of a value or
+	 *            {@literal null}, if the key of a value is a fingerprint.
+	 * @param capacity
+	 *            The maximum number of results to remember.
+	 * @throws IllegalArgumentException
+	 *             If the given {@link Processor} or the given key
+	 *             {@link Converter} is {@literal null} or if the given capacity
+	 *             is not positive.
+	 */
+	public VersionedCachingProcessor(Processor<Value> processor, Converter<? super Value, ?> keyConverter,
+			Converter<? super Value, ?> versionConverter, final int capacity) throws IllegalArgumentException {
+		if (null == processor) {
+			throw new IllegalArgumentException("processor is null");
+		}
+		if (null == keyConverter) {
+			throw new IllegalArgumentException("keyConverter is null");
+		}
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("capacity is not positive");
+		}
+		this.processor = processor;
+		this.keyConverter = keyConverter;
+		this.versionConverter = versionConverter;
+		this.memos = new LinkedHashMap<Object, Memo<Value>>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = -2736415098361152218L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Object, Memo<Value>> eldest) {
+				return size() > capacity;
+			}
+
+		};
+	}
+
+	@Override
+	public Value process(Value value) throws ProcessingException {
+		if (null == value) {
+			return processor.process(value);
+		}
+		Object key = keyConverter.convert(value);
+		if (null == key) {
+			return processor.process(value);
+		}
+		Object version = null == versionConverter ? null : versionConverter.convert(value);
+		synchronized (memos) {
+			Memo<Value> memo = memos.get(key);
+			if (null != memo && equals(memo.version, version)) {
+				hits++;
+				return memo.result;
+			}
+			misses++;
+		}
+		Value result = processor.process(value);
+		synchronized (memos) {
+			memos.put(key, new Memo<Value>(version, result));
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the number of currently remembered results.
+	 *
+	 * @return The number of currently remembered results.
+	 */
+	public int size() {
+		synchronized (memos) {
+			return memos.size();
+		}
+	}
+
+	/**
+	 * Returns the number of values for which a remembered result has been
+	 * returned.
+	 *
+	 * @return The number of values that haven't been processed again.
+	 */
+	public long getHitCount() {
+		synchronized (memos) {
+			return hits;
+		}
+	}
+
+	/**
+	 * Returns the number of values that have been processed.
+	 *
+	 * @return The number of values that have been processed.
+	 */
+	public long getMissCount() {
+		synchronized (memos) {
+			return misses;
+		}
+	}
+
+	/**
+	 * Forgets the remembered result for the given key, such that the next
+	 * value with that key is processed again.
+	 *
+	 * @param key
+	 *            The key to forget the remembered result for.
+	 */
+	public void invalidate(Object key) {
+		synchronized (memos) {
+			memos.remove(key);
+		}
+	}
+
+	/**
+	 * Forgets all remembered results.
+	 */
+	public void clear() {
+		synchronized (memos) {
+			memos.clear();
+		}
+	}
+
+	private static boolean equals(Object first, Object second) {
+		return null == first ? null == second : first.equals(second);
+	}
+
+	private static final class Memo<Value> {
+
+		private final Object version;
+
+		private final Value result;
+
+		public Memo(Object version, Value result) {
+			this.version = version;
+			this.result = result;
+		}
+
+	}
+
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2016 Torsten Krause, Markenwerk GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.markenwerk.commons.callbacks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import net.markenwerk.commons.interfaces.Callback;
+import net.markenwerk.commons.interfaces.Predicate;
+
+/**
+ * An {@link AggregatingCallback} is a {@link Callback} that collects the
+ * results of a given number of callees and forwards the aggregated results to
+ * another {@link Callback}, exactly once.
+ *
+ * <p>
+ * Every result is classified as successful or failed by a {@link Predicate}.
+ * The aggregated results are forwarded as soon as a quorum of successful
+ * results has been collected, or as soon as so many results failed, that the
+ * quorum can't be reached anymore. Waiting for all results, waiting for the
+ * first successful result and waiting for a majority of successful results are
+ * therefore just special cases, with a quorum of all callees, of one callee or
+ * of more than half of the callees, respectively.
+ *
+ * <p>
+ * The aggregated results contain the successful results in the order of their
+ * arrival. If the quorum has been reached, exactly the quorum of successful
+ * results is forwarded. Otherwise, the successful results that have been
+ * collected so far are forwarded. Results that arrive after the aggregated
+ * results have been forwarded are discarded.
+ *
+ * <p>
+ * An {@link AggregatingCallback} doesn't use any locks. Results are stored in
+ * an array, in a slot that is reserved with an atomic counter. The same atomic
+ * value also tracks the number of stored results, such that the aggregated
+ * results are only forwarded once every result, for which a slot has been
+ * reserved, has been stored.
+ *
+ * @param <Callee>
+ *            The type of the callees.
+ * @param <Result>
+ *            The type of the results of the callees.
+ * @author Torsten Krause (tk at markenwerk dot net)
+ * @since 4.1.0
+ */
+public final class AggregatingCallback<Callee, Result> implements Callback<Callee, Result> {
+
+	private static final Object NULL = new Object();
+
+	private static final int PENDING = 0;
+
+	private static final int SUCCEEDED = 1;
+
+	private static final int FAILED = 2;
+
+	private static final long RESERVED = 1L << 32;
+
+	@SuppressWarnings("rawtypes")
+	private static final AtomicIntegerFieldUpdater<AggregatingCallback> DONE = AtomicIntegerFieldUpdater
+			.newUpdater(AggregatingCallback.class, "done");
+
+	private final AtomicLong successes = new AtomicLong();
+
+	private final AtomicInteger failures = new AtomicInteger();
+
+	private final AtomicReferenceArray<Object> results;
+
+	private final int tolerableFailures;
+
+	private final Predicate<? super Result> successPredicate;
+
+	private final Callback<? super AggregatingCallback<Callee, Result>, ? super List<Result>> callback;
+
+	private volatile int done;
+
+	/**
+	 * Creates a new {@link AggregatingCallback} that considers every result as
+	 * successful and forwards the aggregated results, when all callees
+	 * yielded a result.
+	 *
+	 * @param callees
+	 *            The number of callees.
+	 * @param callback
+	 *            The {@link Callback} to forward the aggregated results to.
+	 * @throws IllegalArgumentException
+	 *             If the given number of callees is not positive or if the
+	 *             given {@link Callback} is {@literal null}.
+	 */
+	public AggregatingCallback(int callees,
+			Callback<? super AggregatingCallback<Callee, Result>, ? super List<Result>> callback)
+			throws IllegalArgumentException {
+		this(callees, callees, null, callback);
+	}
+
+	/**
+	 * Creates a new {@link AggregatingCallback}.
+	 *
+	 * @param callees
+	 *            The number of callees.
+	 * @param quorum
+	 *            The number of successful results to wait for.
+	 * @param successPredicate
+	 *            The {@link Predicate} that classifies results as successful or
+	 *            {@literal null}, to consider every result as successful.
+	 * @param callback
+	 *            The {@link Callback} to forward the aggregated results to.
+	 * @throws IllegalArgumentException
+	 *             If the given number of callees is not positive, if the given
+	 *             quorum is not between one and the given number of callees or
+	 *             if the given {@link Callback} is {@literal null}.
+	 */
+	public AggregatingCallback(int callees, int quorum, Predicate<? super Result> successPredicate,
+			Callback<? super AggregatingCallback<Callee, Result>, ? super List<Result>> callback)
+			throws IllegalArgumentException {
+		if (callees <= 0) {
+			throw new IllegalArgumentException("callees is not positive");
+		}
+		if (quorum <= 0 || quorum > callees) {
+			throw new IllegalArgumentException("quorum is not between 1 and " + callees);
+		}
+		if (null == callback) {
+			throw new IllegalArgumentException("callback is null");
+		}
+		this.results = new AtomicReferenceArray<Object>(quorum);
+		this.tolerableFailures = callees - quorum;
+		this.successPredicate = successPredicate;
+		this.callback = callback;
+	}
+
+	@Override
+	public void onResult(Callee callee, Result result) {
+		if (PENDING != done) {
+			return;
+		}
+		if (null == successPredicate || successPredicate.test(result)) {
+			long slot = successes.getAndAdd(RESERVED) >>> 32;
+			if (slot < results.length()) {
+				results.set((int) slot, null == result ? NULL : result);
+			}
+			long counts = successes.incrementAndGet();
+			if (isStored(counts)) {
+				if (getStored(counts) >= results.length()) {
+					finish(SUCCEEDED, results.length());
+				} else if (failures.get() > tolerableFailures) {
+					finish(FAILED, getStored(counts));
+				}
+			}
+		} else if (failures.incrementAndGet() > tolerableFailures) {
+			long counts = successes.get();
+			if (isStored(counts)) {
+				finish(FAILED, Math.min(getStored(counts), results.length()));
+			}
+		}
+	}
+
+	private static boolean isStored(long counts) {
+		return counts >>> 32 == (counts & 0xFFFFFFFFL);
+	}
+
+	private static int getStored(long counts) {
+		return (int) counts;
+	}
+
+	/**
+	 * Returns whether the aggregated results have been forwarded.
+	 *
+	 * @return Whether the aggregated results have been forwarded.
+	 */
+	public boolean isDone() {
+		return PENDING != done;
+	}
+
+	/**
+	 * Returns whether the quorum of successful results has been reached.
+	 *
+	 * @return Whether the quorum of successful results has been reached.
+	 */
+	public boolean isSuccessful() {
+		return SUCCEEDED == done;
+	}
+
+	@SuppressWarnings("unchecked")
+	private void finish(int outcome, int length) {
+		if (DONE.compareAndSet(this, PENDING, outcome)) {
+			List<Result> aggregatedResults = new ArrayList<Result>(length);
+			for (int i = 0; i < length; i++) {
+				Object result = results.get(i);
+				aggregatedResults.add(NULL == result ? null : (Result) result);
+			}
+			callback.onResult(this, Collections.unmodifiableList(aggregatedResults));
+		}
+	}
+
+}
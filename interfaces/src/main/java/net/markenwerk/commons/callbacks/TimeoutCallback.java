@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2016 Torsten Krause, Markenwerk GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.markenwerk.commons.callbacks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+import net.markenwerk.commons.interfaces.Callback;
+import net.markenwerk.commons.timers.HashedWheelTimer;
+import net.markenwerk.commons.timers.Timeout;
+
+/**
+ * A {@link TimeoutCallback} is a {@link Callback} that forwards the first
+ * result to another {@link Callback}, unless a deadline has passed before, in
+ * which case a timeout result is forwarded instead. At most one result is
+ * forwarded in either case.
+ *
+ * <p>
+ * The deadline is tracked with a {@link HashedWheelTimer}, which allows for
+ * millions of pending {@link TimeoutCallback TimeoutCallbacks}. Registering
+ * and cancelling the deadline are constant-time operations that don't require
+ * a lock.
+ *
+ * <p>
+ * If the deadline has passed, the other {@link Callback} is called with
+ * {@literal null} as the callee and the timeout result, on a thread of the
+ * {@link HashedWheelTimer}. Results that arrive afterwards are discarded. If
+ * the {@link HashedWheelTimer} is stopped before the deadline has passed, the
+ * timeout result is never forwarded and the other {@link Callback} is only
+ * called, if a result arrives.
+ *
+ * @param <Callee>
+ *            The type of the callee.
+ * @param <Result>
+ *            The type of the result of the process.
+ * @author Torsten Krause (tk at markenwerk dot net)
+ * @since 4.1.0
+ */
+public final class TimeoutCallback<Callee, Result> implements Callback<Callee, Result> {
+
+	private static final int PENDING = 0;
+
+	private static final int COMPLETED = 1;
+
+	private static final int TIMED_OUT = 2;
+
+	@SuppressWarnings("rawtypes")
+	private static final AtomicIntegerFieldUpdater<TimeoutCallback> STATE = AtomicIntegerFieldUpdater.newUpdater(
+			TimeoutCallback.class, "state");
+
+	private final Callback<? super Callee, ? super Result> callback;
+
+	private final Result timeoutResult;
+
+	private final Timeout timeout;
+
+	private volatile int state;
+
+	/**
+	 * Creates a new {@link TimeoutCallback}.
+	 *
+	 * @param timer
+	 *            The {@link HashedWheelTimer} to track the deadline with.
+	 * @param timeout
+	 *            The time after which the timeout result is forwarded.
+	 * @param unit
+	 *            The {@link TimeUnit} of the given timeout.
+	 * @param callback
+	 *            The {@link Callback} to forward the result to.
+	 * @param timeoutResult
+	 *            The result to forward if the deadline has passed.
+	 * @throws IllegalArgumentException
+	 *             If the given {@link HashedWheelTimer}, the given
+	 *             {@link TimeUnit} or the given {@link Callback} is
+	 *             {@literal null}.
+	 * @throws IllegalStateException
+	 *             If the given {@link HashedWheelTimer} has been stopped.
+	 */
+	public TimeoutCallback(HashedWheelTimer timer, long timeout, TimeUnit unit,
+			Callback<? super Callee, ? super Result> callback, Result timeoutResult) throws IllegalArgumentException,
+			IllegalStateException {
+		if (null == timer) {
+			throw new IllegalArgumentException("timer is null");
+		}
+		if (null == callback) {
+			throw new IllegalArgumentException("callback is null");
+		}
+		this.callback = callback;
+		this.timeoutResult = timeoutResult;
+		this.timeout = timer.schedule(new Runnable() {
+
+			@Override
+			public void run() {
+				onTimeout();
+			}
+
+		}, timeout, unit);
+	}
+
+	@Override
+	public void onResult(Callee callee, Result result) {
+		if (STATE.compareAndSet(this, PENDING, COMPLETED)) {
+			timeout.cancel();
+			callback.onResult(callee, result);
+		}
+	}
+
+	private void onTimeout() {
+		if (STATE.compareAndSet(this, PENDING, TIMED_OUT)) {
+			callback.onResult(null, timeoutResult);
+		}
+	}
+
+	/**
+	 * Returns whether a result has been forwarded before the deadline has
+	 * passed.
+	 *
+	 * @return Whether a result has been forwarded before the deadline has
+	 *         passed.
+	 */
+	public boolean isCompleted() {
+		return COMPLETED == state;
+	}
+
+	/**
+	 * Returns whether the deadline has passed before a result has been
+	 * forwarded.
+	 *
+	 * @return Whether the deadline has passed before a result has been
+	 *         forwarded.
+	 */
+	public boolean isTimedOut() {
+		return TIMED_OUT == state;
+	}
+
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2016 Torsten Krause, Markenwerk GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.markenwerk.commons.chains;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import net.markenwerk.commons.interfaces.Converter;
+import net.markenwerk.commons.interfaces.Predicate;
+import net.markenwerk.commons.interfaces.Processor;
+
+/**
+ * A {@link Chain} declares a sequence of stages, i.e. classes that implement
+ * {@link Converter}, {@link Processor} or {@link Predicate}, for which the
+ * annotation processor of the {@literal commons-interfaces-chain-generator}
+ * artifact generates a single class that calls the stages directly.
+ *
+ * <p>
+ * Every stage is held in a field of it's concrete class, such that every call
+ * site in the generated class only ever sees a single receiver class and can
+ * be inlined. The generated class doesn't use any reflection.
+ *
+ * <p>
+ * The generated class is placed into the package of the annotated type and
+ * implements
+ * <ul>
+ * <li>{@link Predicate}, if all stages are {@link Predicate Predicates}, which
+ * are then tested in order until the first one fails,</li>
+ * <li>{@link Predicate}, if the last stages are {@link Predicate Predicates},
+ * which then test the result of the preceding stages,</li>
+ * <li>{@link Processor}, if all stages are {@link Processor Processors} for
+ * the same type of values,</li>
+ * <li>{@link Converter}, otherwise.</li>
+ * </ul>
+ *
+ * <p>
+ * The generated class has a constructor that takes an instance of every stage
+ * and, if every stage has an accessible constructor without parameters, a
+ * constructor without parameters.
+ *
+ * <p>
+ * If the generated class implements {@link Predicate}, a subject for which a
+ * preceding {@link Converter} throws a
+ * {@link net.markenwerk.commons.exceptions.ConversionException} or a
+ * preceding {@link Processor} throws a
+ * {@link net.markenwerk.commons.exceptions.ProcessingException} fails the
+ * test. If the generated class implements {@link Converter}, a
+ * {@link net.markenwerk.commons.exceptions.ProcessingException} thrown by a
+ * {@link Processor} is wrapped in a
+ * {@link net.markenwerk.commons.exceptions.ConversionException}. All other
+ * exceptions thrown by the stages are propagated unchanged.
+ *
+ * <pre>
+ * {@literal @}Chain({ TrimmingConverter.class, IntegerConverter.class, PositivePredicate.class })
+ * interface PositiveInteger {
+ * }
+ *
+ * Predicate&lt;String&gt; predicate = new PositiveIntegerChain();
+ * </pre>
+ *
+ * @author Torsten Krause (tk at markenwerk dot net)
+ * @since 4.1.0
+ */
+@Documented
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface Chain {
+
+	/**
+	 * Returns the classes of the stages, in the order in which they are
+	 * called.
+	 *
+	 * @return The classes of the stages.
+	 */
+	public Class<?>[] value();
+
+	/**
+	 * Returns the simple name of the generated class. Defaults to the simple
+	 * name of the annotated type, followed by {@literal Chain}.
+	 *
+	 * @return The simple name of the generated class.
+	 */
+	public String name() default "";
+
+}
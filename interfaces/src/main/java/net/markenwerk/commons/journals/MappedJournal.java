@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2016 Torsten Krause, Markenwerk GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.markenwerk.commons.journals;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+/**
+ * Constants and utility methods that describe the on-disk format of a journal
+ * that is written by a {@link MappedJournalHandler} and read by a
+ * {@link MappedJournalProvider}.
+ *
+ * <p>
+ * A journal is a directory of segment files with a fixed size. Each segment
+ * contains a sequence of entries, each consisting of a four byte header,
+ * followed by the payload. The header contains the length of the payload plus
+ * one, such that a header of zero marks space that hasn't been written yet. A
+ * header of {@literal -1} marks the end of a segment, if the remaining space
+ * wasn't sufficient for the next entry.
+ *
+ * <p>
+ * The position up to which a journal has been written completely is shared
+ * between a {@link MappedJournalHandler} and a {@link MappedJournalProvider}
+ * as a single committed value, that contains the index of the current segment
+ * in the upper and the position in that segment in the lower 32 bits.
+ *
+ * @author Torsten Krause (tk at markenwerk dot net)
+ * @since 4.1.0
+ */
+final class MappedJournal {
+
+	public static final int HEADER_SIZE = 4;
+
+	public static final int UNWRITTEN = 0;
+
+	public static final int END_OF_SEGMENT = -1;
+
+	public static final int MINIMUM_SEGMENT_SIZE = 16;
+
+	public static final long MAXIMUM_SEGMENT_INDEX = Integer.MAX_VALUE;
+
+	private static final String SUFFIX = ".journal";
+
+	private MappedJournal() {
+	}
+
+	public static long toCommitted(long segmentIndex, int position) {
+		return (segmentIndex << 32) | position;
+	}
+
+	public static long getCommittedSegmentIndex(long committed) {
+		return committed >>> 32;
+	}
+
+	public static int getCommittedPosition(long committed) {
+		return (int) committed;
+	}
+
+	public static File getSegmentFile(File directory, long index) {
+		return new File(directory, String.format("%020d", index) + SUFFIX);
+	}
+
+	public static long getFirstSegmentIndex(File directory) {
+		long firstIndex = -1;
+		for (File file : listSegmentFiles(directory)) {
+			long index = getSegmentIndex(file);
+			if (-1 == firstIndex || index < firstIndex) {
+				firstIndex = index;
+			}
+		}
+		return firstIndex;
+	}
+
+	public static long getLastSegmentIndex(File directory) {
+		long lastIndex = -1;
+		for (File file : listSegmentFiles(directory)) {
+			lastIndex = Math.max(lastIndex, getSegmentIndex(file));
+		}
+		return lastIndex;
+	}
+
+	private static File[] listSegmentFiles(File directory) {
+		File[] files = directory.listFiles(new FileFilter() {
+
+			@Override
+			public boolean accept(File file) {
+				return file.isFile() && -1 != getSegmentIndex(file);
+			}
+
+		});
+		return null == files ? new File[0] : files;
+	}
+
+	private static long getSegmentIndex(File file) {
+		String name = file.getName();
+		if (!name.endsWith(SUFFIX)) {
+			return -1;
+		}
+		try {
+			return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	public static MappedByteBuffer map(File file, MapMode mode, long size) throws IOException {
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, MapMode.READ_ONLY == mode ? "r" : "rw");
+		try {
+			if (MapMode.READ_ONLY != mode && randomAccessFile.length() < size) {
+				randomAccessFile.setLength(size);
+			}
+			FileChannel channel = randomAccessFile.getChannel();
+			return channel.map(mode, 0, size);
+		} finally {
+			randomAccessFile.close();
+		}
+	}
+
+}
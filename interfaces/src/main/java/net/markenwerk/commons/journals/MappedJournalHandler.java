@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2016 Torsten Krause, Markenwerk GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.markenwerk.commons.journals;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel.MapMode;
+
+import net.markenwerk.commons.exceptions.ConversionException;
+import net.markenwerk.commons.exceptions.HandlingException;
+import net.markenwerk.commons.interfaces.Handler;
+import net.markenwerk.commons.interfaces.Translator;
+
+/**
+ * A {@link MappedJournalHandler} is a {@link Handler} that appends every
+ * handled value to a durable, append-only journal of memory-mapped segment
+ * files, which can be replayed with a {@link MappedJournalProvider}.
+ *
+ * <p>
+ * Values are serialized with the given {@link Translator} and copied into the
+ * currently mapped segment. Appending a value therefore doesn't involve a
+ * system call, except when the current segment is full and the next segment
+ * has to be created and mapped.
+ *
+ * <p>
+ * The journal can be replayed concurrently by a {@link MappedJournalProvider}
+ * that has been created for this {@link MappedJournalHandler}. Every entry is
+ * published to such a {@link MappedJournalProvider} by a volatile write of the
+ * committed position, after the entry has been written completely, such that
+ * it never observes a partially written entry. A
+ * {@link MappedJournalProvider} that has only been created for the directory
+ * of the journal must not be used before this {@link MappedJournalHandler}
+ * has been closed.
+ *
+ * <p>
+ * Written entries are persisted by the operating system eventually, even if
+ * the JVM terminates abnormally. To guarantee that written entries survive a
+ * crash of the operating system, {@link MappedJournalHandler#flush()} has to be
+ * called.
+ *
+ * <p>
+ * A journal directory must not be written by more than one
+ * {@link MappedJournalHandler} at a time.
+ *
+ * @param <Value>
+ *            The type of the values to be handled.
+ * @author Torsten Krause (tk at markenwerk dot net)
+ * @since 4.1.0
+ */
+public final class MappedJournalHandler<Value> implements Handler<Value>, Closeable {
+
+	private final File directory;
+
+	private final int segmentSize;
+
+	private final Translator<Value, ByteBuffer> translator;
+
+	private long segmentIndex;
+
+	private MappedByteBuffer segment;
+
+	private volatile long committed;
+
+	/**
+	 * Creates a new {@link MappedJournalHandler} that appends to the journal in
+	 * the given directory, continuing after the last entry of an existing
+	 * journal.
+	 *
+	 * @param directory
+	 *            The directory of the journal.
+	 * @param segmentSize
+	 *            The size of newly created segments in bytes.
+	 * @param translator
+	 *            The {@link Translator} to serialize the handled values with.
+	 * @throws IllegalArgumentException
+	 *             If the given directory or the given {@link Translator} is
+	 *             {@literal null} or if the given segment size is too small.
+	 * @throws IOException
+	 *             If the journal couldn't be opened or if the last segment of an
+	 *             existing journal is corrupted.
+	 */
+	public MappedJournalHandler(File directory, int segmentSize, Translator<Value, ByteBuffer> translator)
+			throws IllegalArgumentException, IOException {
+		if (null == directory) {
+			throw new IllegalArgumentException("directory is null");
+		}
+		if (segmentSize < MappedJournal.MINIMUM_SEGMENT_SIZE) {
+			throw new IllegalArgumentException("segmentSize is less than " + MappedJournal.MINIMUM_SEGMENT_SIZE);
+		}
+		if (null == translator) {
+			throw new IllegalArgumentException("translator is null");
+		}
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Failed to create directory " + directory);
+		}
+		this.directory = directory;
+		this.segmentSize = segmentSize;
+		this.translator = translator;
+		segmentIndex = Math.max(0, MappedJournal.getLastSegmentIndex(directory));
+		if (segmentIndex > MappedJournal.MAXIMUM_SEGMENT_INDEX) {
+			throw new IOException("Maximum number of segments exceeded");
+		}
+		File file = MappedJournal.getSegmentFile(directory, segmentIndex);
+		segment = MappedJournal.map(file, MapMode.READ_WRITE, Math.max(segmentSize, file.length()));
+		seekEnd(segment);
+		commit();
+	}
+
+	private static void seekEnd(MappedByteBuffer segment) throws IOException {
+		int position = 0;
+		while (segment.capacity() - position >= MappedJournal.HEADER_SIZE) {
+			int header = segment.getInt(position);
+			if (MappedJournal.UNWRITTEN == header) {
+				segment.position(position);
+				return;
+			} else if (MappedJournal.END_OF_SEGMENT == header) {
+				break;
+			} else if (header < 0 || header - 1 > segment.capacity() - position - MappedJournal.HEADER_SIZE) {
+				throw new IOException("Corrupted entry header at offset " + position);
+			}
+			position += MappedJournal.HEADER_SIZE + header - 1;
+		}
+		segment.position(segment.capacity());
+	}
+
+	@Override
+	public synchronized void handle(Value value) throws HandlingException {
+		if (null == segment) {
+			throw new HandlingException("Journal has been closed");
+		}
+		try {
+			ByteBuffer payload = translator.convert(value);
+			if (null == payload) {
+				throw new HandlingException("Serialized value is null");
+			}
+			int length = payload.remaining();
+			if (length > segmentSize - MappedJournal.HEADER_SIZE) {
+				throw new HandlingException("Entry of " + length + " bytes exceeds segment size of " + segmentSize
+						+ " bytes");
+			}
+			if (segment.remaining() < MappedJournal.HEADER_SIZE + length) {
+				roll();
+			}
+			int position = segment.position();
+			segment.position(position + MappedJournal.HEADER_SIZE);
+			segment.put(payload);
+			segment.putInt(position, length + 1);
+			commit();
+		} catch (ConversionException e) {
+			throw new HandlingException("Failed to serialize value", e);
+		} catch (IOException e) {
+			throw new HandlingException("Failed to create segment", e);
+		}
+	}
+
+	private void roll() throws IOException {
+		if (MappedJournal.MAXIMUM_SEGMENT_INDEX == segmentIndex) {
+			throw new IOException("Maximum number of segments reached");
+		}
+		if (segment.remaining() >= MappedJournal.HEADER_SIZE) {
+			segment.putInt(segment.position(), MappedJournal.END_OF_SEGMENT);
+		}
+		segment.force();
+		File file = MappedJournal.getSegmentFile(directory, segmentIndex + 1);
+		segment = MappedJournal.map(file, MapMode.READ_WRITE, segmentSize);
+		segmentIndex++;
+		commit();
+	}
+
+	private void commit() {
+		committed = MappedJournal.toCommitted(segmentIndex, segment.position());
+	}
+
+	File getDirectory() {
+		return directory;
+	}
+
+	long getCommitted() {
+		return committed;
+	}
+
+	/**
+	 * Forces all written entries to be written to the storage device.
+	 *
+	 * @throws HandlingException
+	 *             If the journal has already been closed.
+	 */
+	public synchronized void flush() throws HandlingException {
+		if (null == segment) {
+			throw new HandlingException("Journal has been closed");
+		}
+		segment.force();
+	}
+
+	/**
+	 * Flushes all written entries and closes this {@link MappedJournalHandler}
+	 * . Every following call to {@link MappedJournalHandler#handle(Object)}
+	 * will fail.
+	 */
+	@Override
+	public synchronized void close() {
+		if (null != segment) {
+			segment.force();
+			segment = null;
+		}
+	}
+
+}
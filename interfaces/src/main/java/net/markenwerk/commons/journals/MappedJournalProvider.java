@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2016 Torsten Krause, Markenwerk GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.markenwerk.commons.journals;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel.MapMode;
+
+import net.markenwerk.commons.exceptions.ConversionException;
+import net.markenwerk.commons.exceptions.ProvisioningException;
+import net.markenwerk.commons.interfaces.Provider;
+import net.markenwerk.commons.interfaces.Translator;
+
+/**
+ * A {@link MappedJournalProvider} is a {@link Provider} that replays the
+ * entries of a journal that has been written by a {@link MappedJournalHandler}
+ * sequentially, starting with the first entry of the first segment.
+ *
+ * <p>
+ * Every call to {@link MappedJournalProvider#provide()} deserializes the next
+ * entry with the given {@link Translator}, directly out of the mapped segment.
+ * The {@link ByteBuffer} that is handed to the {@link Translator} is only valid
+ * during the call to {@link Translator#revert(Object)}.
+ *
+ * <p>
+ * If no further entry is available, {@link MappedJournalProvider#provide()}
+ * returns {@literal null}. A {@link MappedJournalProvider} that has been
+ * created for a {@link MappedJournalHandler} replays the journal concurrently
+ * with the {@link MappedJournalHandler} and only provides entries that have
+ * been committed by it, such that a later call may yield further entries. A
+ * {@link MappedJournalProvider} that has only been created for the directory
+ * of a journal must not be used while the journal is written, i.e. before the
+ * {@link MappedJournalHandler} has been closed.
+ *
+ * @param <Value>
+ *            The type of the values to be provided.
+ * @author Torsten Krause (tk at markenwerk dot net)
+ * @since 4.1.0
+ */
+public final class MappedJournalProvider<Value> implements Provider<Value>, Closeable {
+
+	private final File directory;
+
+	private final Translator<Value, ByteBuffer> translator;
+
+	private final MappedJournalHandler<?> handler;
+
+	private long segmentIndex;
+
+	private MappedByteBuffer segment;
+
+	private boolean closed;
+
+	/**
+	 * Creates a new {@link MappedJournalProvider} that replays the journal in
+	 * the given directory, which must not be written concurrently.
+	 *
+	 * @param directory
+	 *            The directory of the journal.
+	 * @param translator
+	 *            The {@link Translator} to deserialize the provided values with.
+	 * @throws IllegalArgumentException
+	 *             If the given directory or the given {@link Translator} is
+	 *             {@literal null}.
+	 */
+	public MappedJournalProvider(File directory, Translator<Value, ByteBuffer> translator)
+			throws IllegalArgumentException {
+		this(directory, null, translator);
+	}
+
+	/**
+	 * Creates a new {@link MappedJournalProvider} that replays the journal that
+	 * is written by the given {@link MappedJournalHandler}, concurrently with
+	 * the given {@link MappedJournalHandler}.
+	 *
+	 * @param handler
+	 *            The {@link MappedJournalHandler} that writes the journal.
+	 * @param translator
+	 *            The {@link Translator} to deserialize the provided values with.
+	 * @throws IllegalArgumentException
+	 *             If the given {@link MappedJournalHandler} or the given
+	 *             {@link Translator} is {@literal null}.
+	 */
+	public MappedJournalProvider(MappedJournalHandler<?> handler, Translator<Value, ByteBuffer> translator)
+			throws IllegalArgumentException {
+		this(getDirectory(handler), handler, translator);
+	}
+
+	private static File getDirectory(MappedJournalHandler<?> handler) throws IllegalArgumentException {
+		if (null == handler) {
+			throw new IllegalArgumentException("handler is null");
+		}
+		return handler.getDirectory();
+	}
+
+	private MappedJournalProvider(File directory, MappedJournalHandler<?> handler,
+			Translator<Value, ByteBuffer> translator) throws IllegalArgumentException {
+		if (null == directory) {
+			throw new IllegalArgumentException("directory is null");
+		}
+		if (null == translator) {
+			throw new IllegalArgumentException("translator is null");
+		}
+		this.directory = directory;
+		this.handler = handler;
+		this.translator = translator;
+		segmentIndex = -1;
+	}
+
+	/**
+	 * Provides the next entry of the journal.
+	 *
+	 * @return The next entry of the journal or {@literal null}, if no further
+	 *         entry is currently available.
+	 * @throws ProvisioningException
+	 *             If this {@link MappedJournalProvider} has been closed, if a
+	 *             segment couldn't be mapped, if a segment is corrupted or if
+	 *             an entry couldn't be deserialized.
+	 */
+	@Override
+	public synchronized Value provide() throws ProvisioningException {
+		if (closed) {
+			throw new ProvisioningException("Journal has been closed");
+		}
+		try {
+			while (true) {
+				if (null == segment && !openSegment(-1 == segmentIndex ? MappedJournal
+						.getFirstSegmentIndex(directory) : segmentIndex)) {
+					return null;
+				}
+				int position = segment.position();
+				if (null != handler && !isCommitted(position)) {
+					return null;
+				}
+				if (segment.remaining() < MappedJournal.HEADER_SIZE) {
+					if (!openSegment(segmentIndex + 1)) {
+						return null;
+					}
+					continue;
+				}
+				int header = segment.getInt(position);
+				if (MappedJournal.UNWRITTEN == header) {
+					return null;
+				} else if (MappedJournal.END_OF_SEGMENT == header) {
+					if (!openSegment(segmentIndex + 1)) {
+						return null;
+					}
+					continue;
+				} else if (header < 0 || header - 1 > segment.remaining() - MappedJournal.HEADER_SIZE) {
+					throw new ProvisioningException("Corrupted entry header at offset " + position + " in segment "
+							+ segmentIndex);
+				}
+				int start = position + MappedJournal.HEADER_SIZE;
+				int end = start + header - 1;
+				segment.position(start);
+				segment.limit(end);
+				try {
+					return translator.revert(segment);
+				} finally {
+					segment.limit(segment.capacity());
+					segment.position(end);
+				}
+			}
+		} catch (ConversionException e) {
+			throw new ProvisioningException("Failed to deserialize entry", e);
+		} catch (IOException e) {
+			throw new ProvisioningException("Failed to map segment", e);
+		}
+	}
+
+	private boolean isCommitted(int position) {
+		long committed = handler.getCommitted();
+		long committedSegmentIndex = MappedJournal.getCommittedSegmentIndex(committed);
+		return committedSegmentIndex > segmentIndex
+				|| (committedSegmentIndex == segmentIndex && MappedJournal.getCommittedPosition(committed) > position);
+	}
+
+	private boolean openSegment(long index) throws IOException {
+		if (-1 == index) {
+			return false;
+		}
+		File file = MappedJournal.getSegmentFile(directory, index);
+		long size = file.length();
+		if (size < MappedJournal.HEADER_SIZE) {
+			return false;
+		}
+		segment = MappedJournal.map(file, MapMode.READ_ONLY, size);
+		segmentIndex = index;
+		return true;
+	}
+
+	/**
+	 * Closes this {@link MappedJournalProvider}. Every following call to
+	 * {@link MappedJournalProvider#provide()} will fail.
+	 */
+	@Override
+	public synchronized void close() {
+		closed = true;
+		segment = null;
+	}
+
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2016 Torsten Krause, Markenwerk GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.markenwerk.commons.limiters;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An {@link AdaptiveConcurrencyLimit} limits the number of calls that are in
+ * flight at the same time and adapts that limit to the observed latencies,
+ * using an additive-increase/multiplicative-decrease (AIMD) algorithm.
+ *
+ * <p>
+ * Every call that completes successfully within a latency threshold, while at
+ * least half of the limit is in use, increases the limit by one. Every call
+ * that fails or exceeds the latency threshold multiplies the limit with a
+ * backoff ratio. The limit always stays between a minimum and a maximum. A
+ * degrading backend therefore quickly receives fewer concurrent calls, while a
+ * healthy backend slowly receives more.
+ *
+ * <p>
+ * Calls that would exceed the current limit are rejected immediately, instead
+ * of being queued. An {@link AdaptiveConcurrencyLimit} doesn't use any locks.
+ *
+ * @author Torsten Krause (tk at markenwerk dot net)
+ * @since 4.1.0
+ */
+public final class AdaptiveConcurrencyLimit {
+
+	private static final double DEFAULT_BACKOFF_RATIO = 0.9;
+
+	private final AtomicInteger inFlight = new AtomicInteger();
+
+	private final AtomicInteger limit;
+
+	private final int minimumLimit;
+
+	private final int maximumLimit;
+
+	private final long latencyThreshold;
+
+	private final double backoffRatio;
+
+	/**
+	 * Creates a new {@link AdaptiveConcurrencyLimit} with a backoff ratio of
+	 * {@literal 0.9}.
+	 *
+	 * @param initialLimit
+	 *            The initial limit.
+	 * @param minimumLimit
+	 *            The minimum limit.
+	 * @param maximumLimit
+	 *            The maximum limit.
+	 * @param latencyThreshold
+	 *            The latency above which a call is considered to be too slow.
+	 * @param unit
+	 *            The {@link TimeUnit} of the given latency threshold.
+	 * @throws IllegalArgumentException
+	 *             If the given minimum limit is not positive, if the given
+	 *             initial limit is not between the given minimum limit and
+	 *             the given maximum limit, if the given latency threshold is
+	 *             not positive or if the given {@link TimeUnit} is
+	 *             {@literal null}.
+	 */
+	public AdaptiveConcurrencyLimit(int initialLimit, int minimumLimit, int maximumLimit, long latencyThreshold,
+			TimeUnit unit) throws IllegalArgumentException {
+		this(initialLimit, minimumLimit, maximumLimit, latencyThreshold, unit, DEFAULT_BACKOFF_RATIO);
+	}
+
+	/**
+	 * Creates a new {@link AdaptiveConcurrencyLimit}.
+	 *
+	 * @param initialLimit
+	 *            The initial limit.
+	 * @param minimumLimit
+	 *            The minimum limit.
+	 * @param maximumLimit
+	 *            The maximum limit.
+	 * @param latencyThreshold
+	 *            The latency above which a call is considered to be too slow.
+	 * @param unit
+	 *            The {@link TimeUnit} of the given latency threshold.
+	 * @param backoffRatio
+	 *            The ratio to multiply the limit with, after a call failed or
+	 *            was too slow.
+	 * @throws IllegalArgumentException
+	 *             If the given minimum limit is not positive, if the given
+	 *             initial limit is not between the given minimum limit and
+	 *             the given maximum limit, if the given latency threshold is
+	 *             not positive, if the given {@link TimeUnit} is
+	 *             {@literal null} or if the given backoff ratio is not
+	 *             between {@literal 0} and {@literal 1} (both exclusive).
+	 */
+	public AdaptiveConcurrencyLimit(int initialLimit, int minimumLimit, int maximumLimit, long latencyThreshold,
+			TimeUnit unit, double backoffRatio) throws IllegalArgumentException {
+		if (minimumLimit <= 0) {
+			throw new IllegalArgumentException("minimumLimit is not positive");
+		}
+		if (initialLimit < minimumLimit || initialLimit > maximumLimit) {
+			throw new IllegalArgumentException("initialLimit is not between minimumLimit and maximumLimit");
+		}
+		if (latencyThreshold <= 0) {
+			throw new IllegalArgumentException("latencyThreshold is not positive");
+		}
+		if (null == unit) {
+			throw new IllegalArgumentException("unit is null");
+		}
+		if (!(backoffRatio > 0 && backoffRatio < 1)) {
+			throw new IllegalArgumentException("backoffRatio is not between 0 and 1");
+		}
+		this.limit = new AtomicInteger(initialLimit);
+		this.minimumLimit = minimumLimit;
+		this.maximumLimit = maximumLimit;
+		this.latencyThreshold = unit.toNanos(latencyThreshold);
+		this.backoffRatio = backoffRatio;
+	}
+
+	/**
+	 * Acquires a slot for a call, if the current limit hasn't been reached
+	 * yet. Every acquired slot must be released with
+	 * {@link AdaptiveConcurrencyLimit#release(long, boolean)} or
+	 * {@link AdaptiveConcurrencyLimit#release()}.
+	 *
+	 * @return Whether a slot has been acquired.
+	 */
+	public boolean tryAcquire() {
+		while (true) {
+			int current = inFlight.get();
+			if (current >= limit.get()) {
+				return false;
+			} else if (inFlight.compareAndSet(current, current + 1)) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Releases a slot and adapts the limit to the outcome of the call.
+	 *
+	 * @param latency
+	 *            The latency of the call, in nanoseconds.
+	 * @param successful
+	 *            Whether the call was successful.
+	 */
+	public void release(long latency, boolean successful) {
+		int current = inFlight.getAndDecrement();
+		if (!successful || latency > latencyThreshold) {
+			decrease();
+		} else if (2 * current >= limit.get()) {
+			increase();
+		}
+	}
+
+	/**
+	 * Releases a slot without adapting the limit, e.g. because the call hasn't
+	 * been performed.
+	 */
+	public void release() {
+		inFlight.decrementAndGet();
+	}
+
+	/**
+	 * Returns the current limit.
+	 *
+	 * @return The current limit.
+	 */
+	public int getLimit() {
+		return limit.get();
+	}
+
+	/**
+	 * Returns the number of calls in flight.
+	 *
+	 * @return The number of calls in flight.
+	 */
+	public int getInFlight() {
+		return inFlight.get();
+	}
+
+	private void increase() {
+		while (true) {
+			int current = limit.get();
+			if (current >= maximumLimit || limit.compareAndSet(current, current + 1)) {
+				return;
+			}
+		}
+	}
+
+	private void decrease() {
+		while (true) {
+			int current = limit.get();
+			int next = Math.max(minimumLimit, (int) (current * backoffRatio));
+			if (next == current || limit.compareAndSet(current, next)) {
+				return;
+			}
+		}
+	}
+
+}
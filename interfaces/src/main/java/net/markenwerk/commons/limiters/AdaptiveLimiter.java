@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2016 Torsten Krause, Markenwerk GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.markenwerk.commons.limiters;
+
+/**
+ * An {@link AdaptiveLimiter} performs the bookkeeping around a call that is
+ * limited by an {@link AdaptiveConcurrencyLimit} and, optionally, tracked by a
+ * {@link CircuitBreaker}.
+ *
+ * @author Torsten Krause (tk at markenwerk dot net)
+ * @since 4.1.0
+ */
+final class AdaptiveLimiter {
+
+	/**
+	 * The permit that is returned by {@link AdaptiveLimiter#tryAcquire()}, if
+	 * the current limit of the {@link AdaptiveConcurrencyLimit} has been
+	 * reached.
+	 */
+	public static final long LIMIT_EXCEEDED = -2;
+
+	private static final long UNTRACKED_PERMIT = 0;
+
+	private final AdaptiveConcurrencyLimit limit;
+
+	private final CircuitBreaker circuitBreaker;
+
+	public AdaptiveLimiter(AdaptiveConcurrencyLimit limit, CircuitBreaker circuitBreaker)
+			throws IllegalArgumentException {
+		if (null == limit) {
+			throw new IllegalArgumentException("limit is null");
+		}
+		this.limit = limit;
+		this.circuitBreaker = circuitBreaker;
+	}
+
+	/**
+	 * Returns whether a call may be performed. Every permitted call must be
+	 * reported with {@link AdaptiveLimiter#release(long, long, boolean)}.
+	 *
+	 * @return The permit for the call, {@link AdaptiveLimiter#LIMIT_EXCEEDED}
+	 *         or {@link CircuitBreaker#REJECTED}.
+	 */
+	public long tryAcquire() {
+		if (!limit.tryAcquire()) {
+			return LIMIT_EXCEEDED;
+		} else if (null == circuitBreaker) {
+			return UNTRACKED_PERMIT;
+		}
+		long permit = circuitBreaker.tryAcquire();
+		if (CircuitBreaker.REJECTED == permit) {
+			limit.release();
+		}
+		return permit;
+	}
+
+	/**
+	 * Reports the outcome of a permitted call.
+	 *
+	 * @param permit
+	 *            The permit that has been returned by
+	 *            {@link AdaptiveLimiter#tryAcquire()} for the call.
+	 * @param latency
+	 *            The latency of the call, in nanoseconds.
+	 * @param successful
+	 *            Whether the call was successful.
+	 */
+	public void release(long permit, long latency, boolean successful) {
+		limit.release(latency, successful);
+		if (null != circuitBreaker) {
+			if (successful) {
+				circuitBreaker.onSuccess(permit);
+			} else {
+				circuitBreaker.onFailure(permit);
+			}
+		}
+	}
+
+	/**
+	 * Describes why a call hasn't been permitted.
+	 *
+	 * @param permit
+	 *            The rejected permit that has been returned by
+	 *            {@link AdaptiveLimiter#tryAcquire()}.
+	 * @return The description.
+	 */
+	public static String describeFailure(long permit) {
+		return LIMIT_EXCEEDED == permit ? "concurrency limit exceeded" : "circuit breaker is open";
+	}
+
+}
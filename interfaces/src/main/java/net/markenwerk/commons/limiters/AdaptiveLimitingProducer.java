@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2016 Torsten Krause, Markenwerk GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.markenwerk.commons.limiters;
+
+import net.markenwerk.commons.exceptions.ProductionException;
+import net.markenwerk.commons.interfaces.Producer;
+
+/**
+ * An {@link AdaptiveLimitingProducer} is a {@link Producer} that delegates to
+ * another {@link Producer}, while the number of calls in flight is limited by
+ * an {@link AdaptiveConcurrencyLimit} and, optionally, while failing calls are
+ * tracked by a {@link CircuitBreaker}.
+ *
+ * <p>
+ * Calls that exceed the current limit or that arrive while the
+ * {@link CircuitBreaker} is open fail fast with a {@link ProductionException},
+ * instead of piling up on a degraded backend. Every exception thrown by the
+ * other {@link Producer} is considered as a failed call.
+ *
+ * @param <Order>
+ *            The type of the orders.
+ * @param <Product>
+ *            The type of the products.
+ * @author Torsten Krause (tk at markenwerk dot net)
+ * @since 4.1.0
+ */
+public final class AdaptiveLimitingProducer<Order, Product> implements Producer<Order, Product> {
+
+	private final Producer<? super Order, ? extends Product> producer;
+
+	private final AdaptiveLimiter limiter;
+
+	/**
+	 * Creates a new {@link AdaptiveLimitingProducer} without a
+	 * {@link CircuitBreaker}.
+	 *
+	 * @param producer
+	 *            The {@link Producer} to delegate to.
+	 * @param limit
+	 *            The {@link AdaptiveConcurrencyLimit} to use.
+	 * @throws IllegalArgumentException
+	 *             If the given {@link Producer} or the given
+	 *             {@link AdaptiveConcurrencyLimit} is {@literal null}.
+	 */
+	public AdaptiveLimitingProducer(Producer<? super Order, ? extends Product> producer,
+			AdaptiveConcurrencyLimit limit) throws IllegalArgumentException {
+		this(producer, limit, null);
+	}
+
+	/**
+	 * Creates a new {@link AdaptiveLimitingProducer}.
+	 *
+	 * @param producer
+	 *            The {@link Producer} to delegate to.
+	 * @param limit
+	 *            The {@link AdaptiveConcurrencyLimit} to use.
+	 * @param circuitBreaker
+	 *            The {@link CircuitBreaker} to use or {@literal null}.
+	 * @throws IllegalArgumentException
+	 *             If the given {@link Producer} or the given
+	 *             {@link AdaptiveConcurrencyLimit} is {@literal null}.
+	 */
+	public AdaptiveLimitingProducer(Producer<? super Order, ? extends Product> producer,
+			AdaptiveConcurrencyLimit limit, CircuitBreaker circuitBreaker) throws IllegalArgumentException {
+		if (null == producer) {
+			throw new IllegalArgumentException("producer is null");
+		}
+		this.producer = producer;
+		this.limiter = new AdaptiveLimiter(limit, circuitBreaker);
+	}
+
+	@Override
+	public Product produce(Order order) throws ProductionException {
+		long permit = limiter.tryAcquire();
+		if (permit < 0) {
+			throw new ProductionException(AdaptiveLimiter.describeFailure(permit));
+		}
+		boolean successful = false;
+		long start = System.nanoTime();
+		try {
+			Product product = producer.produce(order);
+			successful = true;
+			return product;
+		} finally {
+			limiter.release(permit, System.nanoTime() - start, successful);
+		}
+	}
+
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright (c) 2016 Torsten Krause, Markenwerk GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.markenwerk.commons.limiters;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link CircuitBreaker} tracks the outcomes of calls and opens, i.e. rejects
+ * all further calls, if the rate of failed calls exceeds a threshold.
+ *
+ * <p>
+ * Outcomes are counted in consecutive windows of a fixed length. The
+ * {@link CircuitBreaker} opens, as soon as a window contains at least a
+ * minimum number of calls and the failure rate of that window reaches the
+ * threshold. After an open duration, a single probing call is let through.
+ * The outcome of the probing call decides whether the {@link CircuitBreaker}
+ * closes again or stays open for another open duration. If the probing call
+ * doesn't complete within the open duration, another probing call is let
+ * through and the outcome of the previous probing call is ignored.
+ *
+ * <p>
+ * Every permitted call is identified by a permit, that is returned by
+ * {@link CircuitBreaker#tryAcquire()} and that must be handed back together
+ * with the outcome of the call. Outcomes of calls that have been permitted
+ * while the {@link CircuitBreaker} was closed are ignored, unless the
+ * {@link CircuitBreaker} is still closed, when they complete.
+ *
+ * <p>
+ * A {@link CircuitBreaker} doesn't use any locks and doesn't allocate memory
+ * while calls are tracked. Consequently, the failure rate is approximate: A
+ * window is reset without coordinating with concurrently reported outcomes,
+ * such that outcomes that are reported while a window is reset may be lost or
+ * may be counted in the previous window. This only affects calls that complete
+ * at the boundary of two windows.
+ *
+ * @author Torsten Krause (tk at markenwerk dot net)
+ * @since 4.1.0
+ */
+public final class CircuitBreaker {
+
+	/**
+	 * The states of a {@link CircuitBreaker}.
+	 *
+	 * @author Torsten Krause (tk at markenwerk dot net)
+	 * @since 4.1.0
+	 */
+	public static enum State {
+
+		/**
+		 * All calls are let through.
+		 */
+		CLOSED,
+
+		/**
+		 * All calls are rejected.
+		 */
+		OPEN,
+
+		/**
+		 * A probing call has been let through and all other calls are
+		 * rejected.
+		 */
+		HALF_OPEN
+
+	}
+
+	/**
+	 * The permit that is returned by {@link CircuitBreaker#tryAcquire()}, if a
+	 * call may not be performed.
+	 */
+	public static final long REJECTED = -1;
+
+	private static final long CLOSED_PERMIT = 0;
+
+	private static final long CALL = 1;
+
+	private static final long FAILED_CALL = (1L << 32) + 1;
+
+	private final AtomicLong counts = new AtomicLong();
+
+	private final AtomicLong windowStart;
+
+	private final AtomicLong stateChange = new AtomicLong();
+
+	private final AtomicLong probes = new AtomicLong();
+
+	private final AtomicLong probe = new AtomicLong();
+
+	private final double failureRateThreshold;
+
+	private final int minimumCalls;
+
+	private final long window;
+
+	private final long openDuration;
+
+	private volatile State state = State.CLOSED;
+
+	/**
+	 * Creates a new {@link CircuitBreaker}.
+	 *
+	 * @param failureRateThreshold
+	 *            The failure rate at which the {@link CircuitBreaker} opens.
+	 * @param minimumCalls
+	 *            The minimum number of calls in a window, before the failure
+	 *            rate is considered.
+	 * @param window
+	 *            The length of a window.
+	 * @param openDuration
+	 *            The duration after which an open {@link CircuitBreaker} lets
+	 *            a probing call through.
+	 * @param unit
+	 *            The {@link TimeUnit} of the given window and the given open
+	 *            duration.
+	 * @throws IllegalArgumentException
+	 *             If the given failure rate threshold is not greater than
+	 *             {@literal 0} and not greater than {@literal 1}, if the given
+	 *             minimum number of calls, the given window or the given open
+	 *             duration is not positive or if the given {@link TimeUnit} is
+	 *             {@literal null}.
+	 */
+	public CircuitBreaker(double failureRateThreshold, int minimumCalls, long window, long openDuration,
+			TimeUnit unit) throws IllegalArgumentException {
+		if (!(failureRateThreshold > 0 && failureRateThreshold <= 1)) {
+			throw new IllegalArgumentException("failureRateThreshold is not between 0 (exclusive) and 1 (inclusive)");
+		}
+		if (minimumCalls <= 0) {
+			throw new IllegalArgumentException("minimumCalls is not positive");
+		}
+		if (window <= 0) {
+			throw new IllegalArgumentException("window is not positive");
+		}
+		if (openDuration <= 0) {
+			throw new IllegalArgumentException("openDuration is not positive");
+		}
+		if (null == unit) {
+			throw new IllegalArgumentException("unit is null");
+		}
+		this.failureRateThreshold = failureRateThreshold;
+		this.minimumCalls = minimumCalls;
+		this.window = unit.toNanos(window);
+		this.openDuration = unit.toNanos(openDuration);
+		this.windowStart = new AtomicLong(System.nanoTime());
+	}
+
+	/**
+	 * Returns whether a call may be performed. The outcome of every permitted
+	 * call must be reported with {@link CircuitBreaker#onSuccess(long)} or
+	 * {@link CircuitBreaker#onFailure(long)}, together with the returned
+	 * permit.
+	 *
+	 * @return The permit for the call or {@link CircuitBreaker#REJECTED}, if
+	 *         the call may not be performed.
+	 */
+	public long tryAcquire() {
+		if (State.CLOSED == state) {
+			return CLOSED_PERMIT;
+		}
+		long now = System.nanoTime();
+		long lastStateChange = stateChange.get();
+		if (now - lastStateChange >= openDuration && stateChange.compareAndSet(lastStateChange, now)) {
+			long permit = probes.incrementAndGet();
+			probe.set(permit);
+			state = State.HALF_OPEN;
+			return permit;
+		}
+		return REJECTED;
+	}
+
+	/**
+	 * Reports a successful call.
+	 *
+	 * @param permit
+	 *            The permit that has been returned by
+	 *            {@link CircuitBreaker#tryAcquire()} for the call.
+	 */
+	public void onSuccess(long permit) {
+		if (CLOSED_PERMIT == permit) {
+			if (State.CLOSED == state) {
+				record(CALL);
+			}
+		} else if (permit > 0 && probe.compareAndSet(permit, 0)) {
+			windowStart.set(System.nanoTime());
+			counts.set(0);
+			state = State.CLOSED;
+		}
+	}
+
+	/**
+	 * Reports a failed call.
+	 *
+	 * @param permit
+	 *            The permit that has been returned by
+	 *            {@link CircuitBreaker#tryAcquire()} for the call.
+	 */
+	public void onFailure(long permit) {
+		if (CLOSED_PERMIT == permit) {
+			if (State.CLOSED == state) {
+				long currentCounts = record(FAILED_CALL);
+				int calls = (int) currentCounts;
+				int failures = (int) (currentCounts >>> 32);
+				if (calls >= minimumCalls && failures >= failureRateThreshold * calls) {
+					open();
+				}
+			}
+		} else if (permit > 0 && probe.compareAndSet(permit, 0)) {
+			open();
+		}
+	}
+
+	/**
+	 * Returns the current {@link State} of this {@link CircuitBreaker}.
+	 *
+	 * @return The current {@link State}.
+	 */
+	public State getState() {
+		return state;
+	}
+
+	private long record(long outcome) {
+		long now = System.nanoTime();
+		long currentWindowStart = windowStart.get();
+		if (now - currentWindowStart >= window && windowStart.compareAndSet(currentWindowStart, now)) {
+			// outcomes that other threads add concurrently may be lost, see above
+			counts.set(0);
+		}
+		return counts.addAndGet(outcome);
+	}
+
+	private void open() {
+		stateChange.set(System.nanoTime());
+		state = State.OPEN;
+	}
+
+}
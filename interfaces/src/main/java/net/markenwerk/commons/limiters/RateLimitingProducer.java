@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2016 Torsten Krause, Markenwerk GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.markenwerk.commons.limiters;
+
+import java.util.concurrent.TimeUnit;
+
+import net.markenwerk.commons.exceptions.ProductionException;
+import net.markenwerk.commons.interfaces.Producer;
+
+/**
+ * A {@link RateLimitingProducer} is a {@link Producer} that acquires a permit
+ * from a {@link TokenBucket}, before it delegates to another {@link Producer}.
+ *
+ * <p>
+ * Depending on the maximum delay, a {@link RateLimitingProducer} operates in
+ * one of three modes:
+ * <ul>
+ * <li>If no maximum delay is given, every call blocks until a permit is
+ * available.</li>
+ * <li>If the maximum delay is zero, every call fails fast with a
+ * {@link ProductionException}, if no permit is available immediately.</li>
+ * <li>If the maximum delay is positive, every call is queued for up to the
+ * maximum delay and fails fast with a {@link ProductionException}, if the
+ * queue is already so long, that no permit would be available in time.</li>
+ * </ul>
+ *
+ * @param <Order>
+ *            The type of the orders.
+ * @param <Product>
+ *            The type of the products.
+ * @author Torsten Krause (tk at markenwerk dot net)
+ * @since 4.1.0
+ */
+public final class RateLimitingProducer<Order, Product> implements Producer<Order, Product> {
+
+	private final Producer<? super Order, ? extends Product> producer;
+
+	private final TokenBucket bucket;
+
+	private final long maximumDelay;
+
+	/**
+	 * Creates a new {@link RateLimitingProducer} that blocks until a permit is
+	 * available.
+	 *
+	 * @param producer
+	 *            The {@link Producer} to delegate to.
+	 * @param bucket
+	 *            The {@link TokenBucket} to acquire permits from.
+	 * @throws IllegalArgumentException
+	 *             If the given {@link Producer} or the given
+	 *             {@link TokenBucket} is {@literal null}.
+	 */
+	public RateLimitingProducer(Producer<? super Order, ? extends Product> producer, TokenBucket bucket)
+			throws IllegalArgumentException {
+		this(producer, bucket, Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Creates a new {@link RateLimitingProducer} that waits for up to the given
+	 * maximum delay for a permit.
+	 *
+	 * @param producer
+	 *            The {@link Producer} to delegate to.
+	 * @param bucket
+	 *            The {@link TokenBucket} to acquire permits from.
+	 * @param maximumDelay
+	 *            The maximum delay, or zero to fail fast.
+	 * @param unit
+	 *            The {@link TimeUnit} of the given maximum delay.
+	 * @throws IllegalArgumentException
+	 *             If the given {@link Producer}, the given {@link TokenBucket}
+	 *             or the given {@link TimeUnit} is {@literal null} or if the
+	 *             given maximum delay is negative.
+	 */
+	public RateLimitingProducer(Producer<? super Order, ? extends Product> producer, TokenBucket bucket,
+			long maximumDelay, TimeUnit unit) throws IllegalArgumentException {
+		if (null == producer) {
+			throw new IllegalArgumentException("producer is null");
+		}
+		if (null == bucket) {
+			throw new IllegalArgumentException("bucket is null");
+		}
+		if (maximumDelay < 0) {
+			throw new IllegalArgumentException("maximumDelay is negative");
+		}
+		if (null == unit) {
+			throw new IllegalArgumentException("unit is null");
+		}
+		this.producer = producer;
+		this.bucket = bucket;
+		this.maximumDelay = unit.toNanos(maximumDelay);
+	}
+
+	@Override
+	public Product produce(Order order) throws ProductionException {
+		String failure = bucket.acquireOrDescribeFailure(maximumDelay);
+		if (null != failure) {
+			throw new ProductionException(failure);
+		}
+		return producer.produce(order);
+	}
+
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2016 Torsten Krause, Markenwerk GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.markenwerk.commons.limiters;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A {@link TokenBucket} limits the rate at which permits are handed out to a
+ * given number of permits per period, while allowing bursts of up to a given
+ * number of permits.
+ *
+ * <p>
+ * A {@link TokenBucket} doesn't use any locks and doesn't require a thread to
+ * refill the bucket. Instead, it keeps track of the time at which the bucket
+ * will be full again, in a single atomic value, and every permit advances that
+ * time by the interval between two permits. A permit is handed out, if that
+ * time doesn't lie further in the future than the burst allows. Acquiring a
+ * permit is therefore a single successful compare-and-set operation.
+ *
+ * <p>
+ * Permits can be acquired without waiting, by waiting as long as necessary or
+ * by waiting for up to a maximum delay. Waiting callers reserve their permit
+ * upfront, such that they are served in the order of their arrival.
+ *
+ * @author Torsten Krause (tk at markenwerk dot net)
+ * @since 4.1.0
+ */
+public final class TokenBucket {
+
+	private final AtomicLong fullTime;
+
+	private final long interval;
+
+	private final long tolerance;
+
+	/**
+	 * Creates a new {@link TokenBucket}, that is initially full.
+	 *
+	 * @param permits
+	 *            The number of permits to hand out per period.
+	 * @param period
+	 *            The period.
+	 * @param unit
+	 *            The {@link TimeUnit} of the given period.
+	 * @param burst
+	 *            The maximum number of permits that can be handed out at
+	 *            once, i.e. the capacity of the bucket.
+	 * @throws IllegalArgumentException
+	 *             If the given number of permits, the given period or the
+	 *             given burst is not positive, if the given {@link TimeUnit}
+	 *             is {@literal null} or if the interval between two permits
+	 *             would be less than one nanosecond.
+	 */
+	public TokenBucket(long permits, long period, TimeUnit unit, long burst) throws IllegalArgumentException {
+		if (permits <= 0) {
+			throw new IllegalArgumentException("permits is not positive");
+		}
+		if (period <= 0) {
+			throw new IllegalArgumentException("period is not positive");
+		}
+		if (null == unit) {
+			throw new IllegalArgumentException("unit is null");
+		}
+		if (burst <= 0) {
+			throw new IllegalArgumentException("burst is not positive");
+		}
+		interval = unit.toNanos(period) / permits;
+		if (0 == interval) {
+			throw new IllegalArgumentException("interval between two permits is less than one nanosecond");
+		}
+		tolerance = interval * Math.min(burst, Long.MAX_VALUE / 4 / interval);
+		fullTime = new AtomicLong(System.nanoTime());
+	}
+
+	/**
+	 * Acquires a permit, if one is available immediately.
+	 *
+	 * @return Whether a permit has been acquired.
+	 */
+	public boolean tryAcquire() {
+		return reserve(0) >= 0;
+	}
+
+	/**
+	 * Acquires a permit, waiting for up to the given maximum delay, if
+	 * necessary. If the permit would only be available after the maximum
+	 * delay, no permit is acquired and this method returns immediately.
+	 *
+	 * @param maximumDelay
+	 *            The maximum delay.
+	 * @param unit
+	 *            The {@link TimeUnit} of the given maximum delay.
+	 * @return Whether a permit has been acquired.
+	 * @throws IllegalArgumentException
+	 *             If the given {@link TimeUnit} is {@literal null}.
+	 * @throws InterruptedException
+	 *             If the current thread has been interrupted while waiting.
+	 *             The reserved permit is lost in that case.
+	 */
+	public boolean tryAcquire(long maximumDelay, TimeUnit unit) throws IllegalArgumentException,
+			InterruptedException {
+		if (null == unit) {
+			throw new IllegalArgumentException("unit is null");
+		}
+		long delay = reserve(Math.max(0, unit.toNanos(maximumDelay)));
+		if (delay < 0) {
+			return false;
+		}
+		await(delay);
+		return true;
+	}
+
+	/**
+	 * Acquires a permit, waiting as long as necessary.
+	 *
+	 * @throws InterruptedException
+	 *             If the current thread has been interrupted while waiting.
+	 *             The reserved permit is lost in that case.
+	 */
+	public void acquire() throws InterruptedException {
+		await(reserve(Long.MAX_VALUE));
+	}
+
+	/**
+	 * Acquires a permit, waiting for up to the given maximum delay, if
+	 * necessary. Unlike {@link TokenBucket#tryAcquire(long, TimeUnit)}, an
+	 * interruption is reported as a failure and the interrupt status of the
+	 * current thread is restored.
+	 *
+	 * @param maximumDelay
+	 *            The maximum delay in nanoseconds.
+	 * @return {@literal null}, if a permit has been acquired, or a description
+	 *         of the reason why no permit has been acquired.
+	 */
+	String acquireOrDescribeFailure(long maximumDelay) {
+		try {
+			return tryAcquire(maximumDelay, TimeUnit.NANOSECONDS) ? null : "rate limit exceeded";
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return "interrupted while waiting for a permit";
+		}
+	}
+
+	private long reserve(long maximumDelay) {
+		while (true) {
+			long now = System.nanoTime();
+			long currentFullTime = fullTime.get();
+			long nextFullTime = (currentFullTime - now > 0 ? currentFullTime : now) + interval;
+			long delay = nextFullTime - now - tolerance;
+			if (delay > maximumDelay) {
+				return -1;
+			} else if (fullTime.compareAndSet(currentFullTime, nextFullTime)) {
+				return Math.max(0, delay);
+			}
+		}
+	}
+
+	private static void await(long delay) throws InterruptedException {
+		if (0 != delay) {
+			long deadline = System.nanoTime() + delay;
+			while (delay > 0) {
+				LockSupport.parkNanos(delay);
+				if (Thread.interrupted()) {
+					throw new InterruptedException();
+				}
+				delay = deadline - System.nanoTime();
+			}
+		}
+	}
+
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2016 Torsten Krause, Markenwerk GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.markenwerk.commons.predicates;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import net.markenwerk.commons.interfaces.Predicate;
+
+/**
+ * A {@link BloomFilterPredicate} is a {@link Predicate} that tests, whether a
+ * subject has been added to a Bloom filter.
+ *
+ * <p>
+ * A {@link BloomFilterPredicate} never yields false negatives, i.e. it always
+ * yields {@literal true} for subjects that have been added. It may yield false
+ * positives, i.e. yield {@literal true} for subjects that haven't been added,
+ * with a probability that is configured on construction and that holds as long
+ * as no more than the expected number of subjects has been added. It is
+ * therefore well suited as a fast pre-filter in front of an expensive exact
+ * {@link Predicate} (see {@link PreFilteringPredicate}).
+ *
+ * <p>
+ * The filter is represented by a compact array of bits. Subjects can be added
+ * and tested concurrently. Adding a subject sets the corresponding bits with
+ * compare-and-set operations and never blocks.
+ *
+ * <p>
+ * Subjects are hashed with their content, if they are a {@link CharSequence} or
+ * a byte array, and with {@link Object#hashCode()} otherwise.
+ *
+ * @param <Subject>
+ *            The type of the subjects to be tested.
+ * @author Torsten Krause (tk at markenwerk dot net)
+ * @since 4.1.0
+ */
+public final class BloomFilterPredicate<Subject> implements Predicate<Subject> {
+
+	private final AtomicLongArray words;
+
+	private final long numberOfBits;
+
+	private final int numberOfHashes;
+
+	/**
+	 * Creates a new {@link BloomFilterPredicate}.
+	 *
+	 * @param expectedInsertions
+	 *            The expected number of subjects to be added.
+	 * @param falsePositiveProbability
+	 *            The probability of false positives, if the expected number of
+	 *            subjects has been added.
+	 * @throws IllegalArgumentException
+	 *             If the given expected number of subjects is not positive, if
+	 *             the given probability is not between zero and one or if the
+	 *             resulting filter is too large.
+	 */
+	public BloomFilterPredicate(long expectedInsertions, double falsePositiveProbability)
+			throws IllegalArgumentException {
+		if (expectedInsertions <= 0) {
+			throw new IllegalArgumentException("expectedInsertions is not positive");
+		}
+		if (!(falsePositiveProbability > 0 && falsePositiveProbability < 1)) {
+			throw new IllegalArgumentException("falsePositiveProbability is not between zero and one");
+		}
+		double ln2 = Math.log(2);
+		long optimalNumberOfBits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveProbability)
+				/ (ln2 * ln2));
+		long numberOfWords = (optimalNumberOfBits + 63) >>> 6;
+		if (numberOfWords > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Resulting filter is too large");
+		}
+		words = new AtomicLongArray((int) numberOfWords);
+		numberOfBits = numberOfWords << 6;
+		numberOfHashes = Math.max(1, (int) Math.round((double) numberOfBits / expectedInsertions * ln2));
+	}
+
+	/**
+	 * Adds the given subject to this {@link BloomFilterPredicate}.
+	 *
+	 * @param subject
+	 *            The subject to be added.
+	 * @return Whether the given subject has certainly not been added before.
+	 *         If {@literal false} is returned, the subject has probably been
+	 *         added before.
+	 */
+	public boolean add(Subject subject) {
+		long hash = Hashing.hash(subject);
+		long hash1 = hash >>> 32;
+		long hash2 = hash & 0xFFFFFFFFL;
+		boolean changed = false;
+		for (int i = 0; i < numberOfHashes; i++) {
+			long bit = ((hash1 + i * hash2) & Long.MAX_VALUE) % numberOfBits;
+			int index = (int) (bit >>> 6);
+			long mask = 1L << bit;
+			while (true) {
+				long word = words.get(index);
+				if (0 != (word & mask)) {
+					break;
+				} else if (words.compareAndSet(index, word, word | mask)) {
+					changed = true;
+					break;
+				}
+			}
+		}
+		return changed;
+	}
+
+	/**
+	 * Tests, whether the given subject has probably been added to this
+	 * {@link BloomFilterPredicate}.
+	 *
+	 * @param subject
+	 *            The subject to be tested.
+	 * @return {@literal false} if the given subject has certainly not been
+	 *         added, {@literal true} otherwise.
+	 */
+	@Override
+	public boolean test(Subject subject) {
+		long hash = Hashing.hash(subject);
+		long hash1 = hash >>> 32;
+		long hash2 = hash & 0xFFFFFFFFL;
+		for (int i = 0; i < numberOfHashes; i++) {
+			long bit = ((hash1 + i * hash2) & Long.MAX_VALUE) % numberOfBits;
+			if (0 == (words.get((int) (bit >>> 6)) & (1L << bit))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the number of bits of this {@link BloomFilterPredicate}.
+	 *
+	 * @return The number of bits.
+	 */
+	public long getNumberOfBits() {
+		return numberOfBits;
+	}
+
+	/**
+	 * Returns the number of hash functions of this {@link BloomFilterPredicate}
+	 * .
+	 *
+	 * @return The number of hash functions.
+	 */
+	public int getNumberOfHashes() {
+		return numberOfHashes;
+	}
+
+}
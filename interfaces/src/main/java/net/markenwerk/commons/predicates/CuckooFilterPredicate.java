@@ -0,0 +1,367 @@
+/*
+ * Copyright (c) 2016 Torsten Krause, Markenwerk GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.markenwerk.commons.predicates;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import net.markenwerk.commons.interfaces.Predicate;
+
+/**
+ * A {@link CuckooFilterPredicate} is a {@link Predicate} that tests, whether a
+ * subject has been added to a cuckoo filter.
+ *
+ * <p>
+ * A {@link CuckooFilterPredicate} never yields false negatives, i.e. it always
+ * yields {@literal true} for subjects that have been added. It may yield false
+ * positives, i.e. yield {@literal true} for subjects that haven't been added.
+ * It stores a fingerprint of every added subject in one of two candidate
+ * buckets. The size of the fingerprints is chosen such that the probability
+ * of false positives doesn't exceed the requested probability, independent of
+ * the number of added subjects. Every bucket holds as many fingerprints as fit
+ * into 64 bits, e.g. four 16-bit fingerprints for a probability of
+ * {@literal 0.0002}. It is therefore well suited as a fast pre-filter in front
+ * of an expensive exact {@link Predicate} (see {@link PreFilteringPredicate}).
+ *
+ * <p>
+ * The filter is represented by a compact array of 64-bit buckets. Subjects can
+ * be added and tested concurrently. Adding a subject places the fingerprint in
+ * an empty slot of one of it's candidate buckets with a compare-and-set
+ * operation and never blocks, unless both candidate buckets are full. In that
+ * case, a path of fingerprints to be relocated to their alternate bucket is
+ * searched and executed backwards, while holding a lock that is only shared
+ * with other relocations. Every fingerprint is copied to it's new location
+ * before it is removed from it's old location, such that concurrent tests
+ * never miss a fingerprint.
+ *
+ * <p>
+ * Subjects can be removed, which takes the same lock as relocations.
+ *
+ * <p>
+ * Subjects are hashed with their content, if they are a {@link CharSequence} or
+ * a byte array, and with {@link Object#hashCode()} otherwise.
+ *
+ * @param <Subject>
+ *            The type of the subjects to be tested.
+ * @author Torsten Krause (tk at markenwerk dot net)
+ * @since 4.1.0
+ */
+public final class CuckooFilterPredicate<Subject> implements Predicate<Subject> {
+
+	private static final int BUCKET_BITS = 64;
+
+	private static final int MINIMUM_SLOT_BITS = 4;
+
+	private static final int MAXIMUM_SLOT_BITS = 32;
+
+	private static final int MAXIMUM_PATH_LENGTH = 128;
+
+	private static final int MAXIMUM_ATTEMPTS = 16;
+
+	private static final int SUCCESS = 0;
+
+	private static final int RETRY = 1;
+
+	private static final int FAILURE = 2;
+
+	private final Object relocationLock = new Object();
+
+	private final int[] pathBuckets = new int[MAXIMUM_PATH_LENGTH];
+
+	private final int[] pathSlots = new int[MAXIMUM_PATH_LENGTH];
+
+	private final int[] pathFingerprints = new int[MAXIMUM_PATH_LENGTH];
+
+	private final AtomicLongArray buckets;
+
+	private final int mask;
+
+	private final int slots;
+
+	private final int slotBits;
+
+	private final long slotMask;
+
+	private int random = 0x2545F491;
+
+	/**
+	 * Creates a new {@link CuckooFilterPredicate}.
+	 *
+	 * @param capacity
+	 *            The number of subjects to be added.
+	 * @param falsePositiveProbability
+	 *            The maximum probability of false positives.
+	 * @throws IllegalArgumentException
+	 *             If the given capacity is not positive, if the given
+	 *             probability is not between zero and one, if the given
+	 *             probability requires fingerprints with more than 32 bits
+	 *             or if the resulting filter is too large.
+	 */
+	public CuckooFilterPredicate(long capacity, double falsePositiveProbability) throws IllegalArgumentException {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("capacity is not positive");
+		}
+		if (!(falsePositiveProbability > 0 && falsePositiveProbability < 1)) {
+			throw new IllegalArgumentException("falsePositiveProbability is not between zero and one");
+		}
+		int bits = MINIMUM_SLOT_BITS;
+		while (2.0 * (BUCKET_BITS / bits) / (1L << bits) > falsePositiveProbability) {
+			if (MAXIMUM_SLOT_BITS == bits) {
+				throw new IllegalArgumentException("falsePositiveProbability is too small");
+			}
+			bits++;
+		}
+		slotBits = bits;
+		slotMask = (1L << bits) - 1;
+		slots = BUCKET_BITS / bits;
+		double loadFactor = slots < 4 ? 0.84 : 0.95;
+		long numberOfBuckets = Long.highestOneBit((long) Math.ceil(capacity / (slots * loadFactor)) * 2 - 1);
+		if (numberOfBuckets > 1 << 30) {
+			throw new IllegalArgumentException("Resulting filter is too large");
+		}
+		buckets = new AtomicLongArray((int) Math.max(2, numberOfBuckets));
+		mask = buckets.length() - 1;
+	}
+
+	/**
+	 * Adds the given subject to this {@link CuckooFilterPredicate}.
+	 *
+	 * @param subject
+	 *            The subject to be added.
+	 * @return Whether the given subject has certainly not been added before.
+	 *         If {@literal false} is returned, the subject has probably been
+	 *         added before and this {@link CuckooFilterPredicate} hasn't been
+	 *         modified.
+	 * @throws IllegalStateException
+	 *             If this {@link CuckooFilterPredicate} is too full to add the
+	 *             given subject.
+	 */
+	public boolean add(Subject subject) throws IllegalStateException {
+		long hash = Hashing.hash(subject);
+		int fingerprint = fingerprint(hash);
+		int index1 = (int) hash & mask;
+		int index2 = alternateIndex(index1, fingerprint);
+		if (contains(index1, fingerprint) || contains(index2, fingerprint)) {
+			return false;
+		}
+		if (insert(index1, fingerprint) || insert(index2, fingerprint)) {
+			return true;
+		}
+		synchronized (relocationLock) {
+			int attempts = 0;
+			while (attempts < MAXIMUM_ATTEMPTS) {
+				if (insert(index1, fingerprint) || insert(index2, fingerprint)) {
+					return true;
+				}
+				int result = relocate(0 == (nextRandom() & 1) ? index1 : index2, fingerprint);
+				if (SUCCESS == result) {
+					return true;
+				} else if (FAILURE == result) {
+					attempts++;
+				}
+			}
+		}
+		throw new IllegalStateException("Filter is too full to add subject");
+	}
+
+	/**
+	 * Removes the given subject from this {@link CuckooFilterPredicate}.
+	 *
+	 * <p>
+	 * Only subjects that have been added should be removed. Removing a
+	 * subject that hasn't been added may remove another subject with the same
+	 * fingerprint. Subjects for which {@link CuckooFilterPredicate#add(Object)}
+	 * yielded {@literal false}, because they share the fingerprint of another
+	 * subject, are removed together with that subject.
+	 *
+	 * @param subject
+	 *            The subject to be removed.
+	 * @return Whether a fingerprint of the given subject has been removed.
+	 */
+	public boolean remove(Subject subject) {
+		long hash = Hashing.hash(subject);
+		int fingerprint = fingerprint(hash);
+		int index1 = (int) hash & mask;
+		synchronized (relocationLock) {
+			return delete(index1, fingerprint) || delete(alternateIndex(index1, fingerprint), fingerprint);
+		}
+	}
+
+	/**
+	 * Tests, whether the given subject has probably been added to this
+	 * {@link CuckooFilterPredicate}.
+	 *
+	 * @param subject
+	 *            The subject to be tested.
+	 * @return {@literal false} if the given subject has certainly not been
+	 *         added, {@literal true} otherwise.
+	 */
+	@Override
+	public boolean test(Subject subject) {
+		long hash = Hashing.hash(subject);
+		int fingerprint = fingerprint(hash);
+		int index1 = (int) hash & mask;
+		return contains(index1, fingerprint) || contains(alternateIndex(index1, fingerprint), fingerprint);
+	}
+
+	int getIndex(Subject subject) {
+		return (int) Hashing.hash(subject) & mask;
+	}
+
+	int getAlternateIndex(Subject subject) {
+		long hash = Hashing.hash(subject);
+		return alternateIndex((int) hash & mask, fingerprint(hash));
+	}
+
+	private int fingerprint(long hash) {
+		int fingerprint = (int) (hash >>> (BUCKET_BITS - slotBits));
+		return 0 == fingerprint ? 1 : fingerprint;
+	}
+
+	private int getSlot(long bucket, int slot) {
+		return (int) ((bucket >>> (slot * slotBits)) & slotMask);
+	}
+
+	private int alternateIndex(int index, int fingerprint) {
+		return (index ^ (int) Hashing.mix(fingerprint)) & mask;
+	}
+
+	private boolean contains(int index, int fingerprint) {
+		long bucket = buckets.get(index);
+		for (int slot = 0; slot < slots; slot++) {
+			if (fingerprint == getSlot(bucket, slot)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean hasEmptySlot(int index) {
+		long bucket = buckets.get(index);
+		for (int slot = 0; slot < slots; slot++) {
+			if (0 == getSlot(bucket, slot)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean insert(int index, int fingerprint) {
+		while (true) {
+			long bucket = buckets.get(index);
+			int emptySlot = -1;
+			for (int slot = 0; slot < slots; slot++) {
+				if (0 == getSlot(bucket, slot)) {
+					emptySlot = slot;
+					break;
+				}
+			}
+			if (-1 == emptySlot) {
+				return false;
+			} else if (buckets.compareAndSet(index, bucket, bucket | toSlot(emptySlot, fingerprint))) {
+				return true;
+			}
+		}
+	}
+
+	private boolean delete(int index, int fingerprint) {
+		while (true) {
+			long bucket = buckets.get(index);
+			int matchingSlot = -1;
+			for (int slot = 0; slot < slots; slot++) {
+				if (fingerprint == getSlot(bucket, slot)) {
+					matchingSlot = slot;
+					break;
+				}
+			}
+			if (-1 == matchingSlot) {
+				return false;
+			} else if (buckets.compareAndSet(index, bucket, bucket & ~toSlot(matchingSlot, -1))) {
+				return true;
+			}
+		}
+	}
+
+	private void replace(int index, int slot, int fingerprint) {
+		while (true) {
+			long bucket = buckets.get(index);
+			if (buckets.compareAndSet(index, bucket, (bucket & ~toSlot(slot, -1)) | toSlot(slot, fingerprint))) {
+				return;
+			}
+		}
+	}
+
+	private long toSlot(int slot, int fingerprint) {
+		return (fingerprint & slotMask) << (slot * slotBits);
+	}
+
+	private int relocate(int start, int fingerprint) {
+		int bucket = start;
+		for (int depth = 0; depth < MAXIMUM_PATH_LENGTH; depth++) {
+			int slot = nextUnvisitedSlot(bucket, depth);
+			if (-1 == slot) {
+				return FAILURE;
+			}
+			int victim = getSlot(buckets.get(bucket), slot);
+			if (0 == victim) {
+				return RETRY;
+			}
+			pathBuckets[depth] = bucket;
+			pathSlots[depth] = slot;
+			pathFingerprints[depth] = victim;
+			bucket = alternateIndex(bucket, victim);
+			if (hasEmptySlot(bucket)) {
+				for (int i = depth; i >= 0; i--) {
+					if (!insert(bucket, pathFingerprints[i])) {
+						return RETRY;
+					}
+					bucket = pathBuckets[i];
+					replace(bucket, pathSlots[i], 0 == i ? fingerprint : 0);
+				}
+				return SUCCESS;
+			}
+		}
+		return FAILURE;
+	}
+
+	private int nextUnvisitedSlot(int bucket, int depth) {
+		int offset = (nextRandom() >>> 1) % slots;
+		for (int i = 0; i < slots; i++) {
+			int slot = (offset + i) % slots;
+			boolean visited = false;
+			for (int j = 0; j < depth && !visited; j++) {
+				visited = pathBuckets[j] == bucket && pathSlots[j] == slot;
+			}
+			if (!visited) {
+				return slot;
+			}
+		}
+		return -1;
+	}
+
+	private int nextRandom() {
+		random ^= random << 13;
+		random ^= random >>> 17;
+		random ^= random << 5;
+		return random;
+	}
+
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2016 Torsten Krause, Markenwerk GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.markenwerk.commons.predicates;
+
+/**
+ * Utility methods to calculate well distributed 64-bit hashes of arbitrary
+ * subjects.
+ *
+ * <p>
+ * For {@link CharSequence CharSequences} and byte arrays, the hash is
+ * calculated from the content. For all other subjects, the hash is derived from
+ * {@link Object#hashCode()}, which only yields 32 bits of entropy.
+ *
+ * @author Torsten Krause (tk at markenwerk dot net)
+ * @since 4.1.0
+ */
+final class Hashing {
+
+	private static final long OFFSET_BASIS = 0xCBF29CE484222325L;
+
+	private static final long PRIME = 0x100000001B3L;
+
+	private Hashing() {
+	}
+
+	public static long hash(Object subject) {
+		if (null == subject) {
+			return mix(0);
+		} else if (subject instanceof CharSequence) {
+			CharSequence charSequence = (CharSequence) subject;
+			long hash = OFFSET_BASIS;
+			for (int i = 0, n = charSequence.length(); i < n; i++) {
+				hash = (hash ^ charSequence.charAt(i)) * PRIME;
+			}
+			return mix(hash);
+		} else if (subject instanceof byte[]) {
+			byte[] bytes = (byte[]) subject;
+			long hash = OFFSET_BASIS;
+			for (int i = 0, n = bytes.length; i < n; i++) {
+				hash = (hash ^ bytes[i]) * PRIME;
+			}
+			return mix(hash);
+		} else {
+			return mix(subject.hashCode());
+		}
+	}
+
+	public static long mix(long hash) {
+		hash ^= hash >>> 33;
+		hash *= 0xFF51AFD7ED558CCDL;
+		hash ^= hash >>> 33;
+		hash *= 0xC4CEB9FE1A85EC53L;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2016 Torsten Krause, Markenwerk GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.markenwerk.commons.predicates;
+
+/**
+ * An {@link IndexSet} is an immutable, compact set of indices into an array or
+ * a list, that is represented by an array of bits.
+ *
+ * @author Torsten Krause (tk at markenwerk dot net)
+ * @since 4.1.0
+ */
+public final class IndexSet {
+
+	private final long[] words;
+
+	private final int size;
+
+	IndexSet(long[] words, int size) {
+		this.words = words;
+		this.size = size;
+	}
+
+	/**
+	 * Returns the number of indices that have been considered, i.e. the length
+	 * of the filtered array or list.
+	 *
+	 * @return The number of considered indices.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the number of indices in this {@link IndexSet}.
+	 *
+	 * @return The number of indices in this {@link IndexSet}.
+	 */
+	public int cardinality() {
+		int cardinality = 0;
+		for (long word : words) {
+			cardinality += Long.bitCount(word);
+		}
+		return cardinality;
+	}
+
+	/**
+	 * Returns whether the given index is contained in this {@link IndexSet}.
+	 *
+	 * @param index
+	 *            The index to be tested.
+	 * @return Whether the given index is contained in this {@link IndexSet}.
+	 * @throws IndexOutOfBoundsException
+	 *             If the given index is negative or not less than the number
+	 *             of considered indices.
+	 */
+	public boolean contains(int index) throws IndexOutOfBoundsException {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("index " + index + " is not between 0 and " + (size - 1));
+		}
+		return 0 != (words[index >>> 6] & (1L << index));
+	}
+
+	/**
+	 * Returns the smallest index in this {@link IndexSet} that is greater than
+	 * or equal to the given index.
+	 *
+	 * @param fromIndex
+	 *            The index to start searching from.
+	 * @return The next index or {@literal -1}, if there is no such index.
+	 */
+	public int nextIndex(int fromIndex) {
+		if (fromIndex < 0) {
+			fromIndex = 0;
+		}
+		if (fromIndex >= size) {
+			return -1;
+		}
+		int wordIndex = fromIndex >>> 6;
+		long word = words[wordIndex] & (-1L << fromIndex);
+		while (true) {
+			if (0 != word) {
+				return (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+			} else if (++wordIndex == words.length) {
+				return -1;
+			}
+			word = words[wordIndex];
+		}
+	}
+
+	/**
+	 * Returns all indices in this {@link IndexSet} in ascending order.
+	 *
+	 * @return The indices in this {@link IndexSet}.
+	 */
+	public int[] toArray() {
+		int[] indices = new int[cardinality()];
+		int count = 0;
+		for (int wordIndex = 0; wordIndex < words.length; wordIndex++) {
+			long word = words[wordIndex];
+			while (0 != word) {
+				indices[count++] = (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+				word &= word - 1;
+			}
+		}
+		return indices;
+	}
+
+}
@@ -0,0 +1,420 @@
+/*
+ * Copyright (c) 2016 Torsten Krause, Markenwerk GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.markenwerk.commons.predicates;
+
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import net.markenwerk.commons.interfaces.Predicate;
+
+/**
+ * A {@link ParallelFilter} tests all elements of large arrays or lists in
+ * parallel and yields the indices of the matching elements as an
+ * {@link IndexSet}.
+ *
+ * <p>
+ * The elements are split into chunks, whose boundaries are aligned to the 64
+ * bits of a word of the resulting {@link IndexSet}, such that every chunk is
+ * written without any synchronization. The chunks are claimed dynamically with
+ * an atomic counter by the calling thread and by helper tasks that are handed
+ * to the given {@link Executor}, such that an uneven cost of the chunks is
+ * balanced and the filtering completes, even if the {@link Executor} doesn't
+ * execute any helper task in time. Inputs below a threshold are filtered by
+ * the calling thread alone.
+ *
+ * <p>
+ * Besides filtering with an arbitrary {@link Predicate}, range and equality
+ * tests on primitive arrays are provided, whose evaluation is free of boxing
+ * and of branches.
+ *
+ * <p>
+ * If a {@link Predicate} throws an exception, the first such exception is
+ * rethrown by the calling thread, after all chunks have been processed.
+ *
+ * @author Torsten Krause (tk at markenwerk dot net)
+ * @since 4.1.0
+ */
+public final class ParallelFilter {
+
+	private static final int CHUNKS_PER_THREAD = 4;
+
+	private static final int MINIMUM_CHUNK_SIZE = 1 << 12;
+
+	private final Executor executor;
+
+	private final int parallelism;
+
+	/**
+	 * Creates a new {@link ParallelFilter}.
+	 *
+	 * @param executor
+	 *            The {@link Executor} to execute helper tasks with.
+	 * @param parallelism
+	 *            The number of threads to filter with, including the calling
+	 *            thread.
+	 * @throws IllegalArgumentException
+	 *             If the given {@link Executor} is {@literal null} or if the
+	 *             given parallelism is not positive.
+	 */
+	public ParallelFilter(Executor executor, int parallelism) throws IllegalArgumentException {
+		if (null == executor) {
+			throw new IllegalArgumentException("executor is null");
+		}
+		if (parallelism <= 0) {
+			throw new IllegalArgumentException("parallelism is not positive");
+		}
+		this.executor = executor;
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Filters the given array with the given {@link Predicate}.
+	 *
+	 * @param <Subject>
+	 *            The type of the subjects to be tested.
+	 * @param subjects
+	 *            The subjects to be tested.
+	 * @param predicate
+	 *            The {@link Predicate} to test the subjects with.
+	 * @return The {@link IndexSet} of the subjects that satisfy the given
+	 *         {@link Predicate}.
+	 * @throws IllegalArgumentException
+	 *             If the given array or the given {@link Predicate} is
+	 *             {@literal null}.
+	 */
+	public <Subject> IndexSet filter(final Subject[] subjects, final Predicate<? super Subject> predicate)
+			throws IllegalArgumentException {
+		if (null == subjects) {
+			throw new IllegalArgumentException("subjects is null");
+		}
+		if (null == predicate) {
+			throw new IllegalArgumentException("predicate is null");
+		}
+		return filter(subjects.length, new Evaluation() {
+
+			@Override
+			public long evaluate(int start, int end) {
+				long word = 0;
+				for (int i = start; i < end; i++) {
+					if (predicate.test(subjects[i])) {
+						word |= 1L << i;
+					}
+				}
+				return word;
+			}
+
+		});
+	}
+
+	/**
+	 * Filters the given {@link List} with the given {@link Predicate}.
+	 *
+	 * @param <Subject>
+	 *            The type of the subjects to be tested.
+	 * @param subjects
+	 *            The subjects to be tested. Must support fast random access
+	 *            and must not be modified while being filtered.
+	 * @param predicate
+	 *            The {@link Predicate} to test the subjects with.
+	 * @return The {@link IndexSet} of the subjects that satisfy the given
+	 *         {@link Predicate}.
+	 * @throws IllegalArgumentException
+	 *             If the given {@link List} or the given {@link Predicate} is
+	 *             {@literal null} or if the given {@link List} doesn't
+	 *             implement {@link RandomAccess}.
+	 */
+	public <Subject> IndexSet filter(final List<? extends Subject> subjects,
+			final Predicate<? super Subject> predicate) throws IllegalArgumentException {
+		if (null == subjects) {
+			throw new IllegalArgumentException("subjects is null");
+		}
+		if (!(subjects instanceof RandomAccess)) {
+			throw new IllegalArgumentException("subjects doesn't support random access");
+		}
+		if (null == predicate) {
+			throw new IllegalArgumentException("predicate is null");
+		}
+		return filter(subjects.size(), new Evaluation() {
+
+			@Override
+			public long evaluate(int start, int end) {
+				long word = 0;
+				for (int i = start; i < end; i++) {
+					if (predicate.test(subjects.get(i))) {
+						word |= 1L << i;
+					}
+				}
+				return word;
+			}
+
+		});
+	}
+
+	/**
+	 * Filters the given array for values between the given minimum and the
+	 * given maximum, both inclusive.
+	 *
+	 * @param values
+	 *            The values to be tested.
+	 * @param minimum
+	 *            The minimum value.
+	 * @param maximum
+	 *            The maximum value.
+	 * @return The {@link IndexSet} of the values in the given range.
+	 * @throws IllegalArgumentException
+	 *             If the given array is {@literal null}.
+	 */
+	public IndexSet filterRange(final int[] values, final int minimum, int maximum) throws IllegalArgumentException {
+		if (null == values) {
+			throw new IllegalArgumentException("values is null");
+		}
+		if (minimum > maximum) {
+			return new IndexSet(new long[(values.length + 63) >>> 6], values.length);
+		}
+		final long span = (maximum - minimum) & 0xFFFFFFFFL;
+		return filter(values.length, new Evaluation() {
+
+			@Override
+			public long evaluate(int start, int end) {
+				long word = 0;
+				for (int i = start; i < end; i++) {
+					long offset = (values[i] - minimum) & 0xFFFFFFFFL;
+					word |= ((offset - span - 1) >>> 63) << i;
+				}
+				return word;
+			}
+
+		});
+	}
+
+	/**
+	 * Filters the given array for values that are equal to the given value.
+	 *
+	 * @param values
+	 *            The values to be tested.
+	 * @param value
+	 *            The value to test for.
+	 * @return The {@link IndexSet} of the values that are equal to the given
+	 *         value.
+	 * @throws IllegalArgumentException
+	 *             If the given array is {@literal null}.
+	 */
+	public IndexSet filterEqual(int[] values, int value) throws IllegalArgumentException {
+		return filterRange(values, value, value);
+	}
+
+	/**
+	 * Filters the given array for values between the given minimum and the
+	 * given maximum, both inclusive.
+	 *
+	 * @param values
+	 *            The values to be tested.
+	 * @param minimum
+	 *            The minimum value.
+	 * @param maximum
+	 *            The maximum value.
+	 * @return The {@link IndexSet} of the values in the given range.
+	 * @throws IllegalArgumentException
+	 *             If the given array is {@literal null}.
+	 */
+	public IndexSet filterRange(final long[] values, final long minimum, long maximum)
+			throws IllegalArgumentException {
+		if (null == values) {
+			throw new IllegalArgumentException("values is null");
+		}
+		if (minimum > maximum) {
+			return new IndexSet(new long[(values.length + 63) >>> 6], values.length);
+		}
+		final long span = maximum - minimum + Long.MIN_VALUE;
+		return filter(values.length, new Evaluation() {
+
+			@Override
+			public long evaluate(int start, int end) {
+				long word = 0;
+				for (int i = start; i < end; i++) {
+					long offset = values[i] - minimum + Long.MIN_VALUE;
+					word |= (offset <= span ? 1L : 0L) << i;
+				}
+				return word;
+			}
+
+		});
+	}
+
+	/**
+	 * Filters the given array for values that are equal to the given value.
+	 *
+	 * @param values
+	 *            The values to be tested.
+	 * @param value
+	 *            The value to test for.
+	 * @return The {@link IndexSet} of the values that are equal to the given
+	 *         value.
+	 * @throws IllegalArgumentException
+	 *             If the given array is {@literal null}.
+	 */
+	public IndexSet filterEqual(long[] values, long value) throws IllegalArgumentException {
+		return filterRange(values, value, value);
+	}
+
+	/**
+	 * Filters the given array for values between the given minimum and the
+	 * given maximum, both inclusive. {@link Double#NaN} is never in range.
+	 *
+	 * @param values
+	 *            The values to be tested.
+	 * @param minimum
+	 *            The minimum value.
+	 * @param maximum
+	 *            The maximum value.
+	 * @return The {@link IndexSet} of the values in the given range.
+	 * @throws IllegalArgumentException
+	 *             If the given array is {@literal null}.
+	 */
+	public IndexSet filterRange(final double[] values, final double minimum, final double maximum)
+			throws IllegalArgumentException {
+		if (null == values) {
+			throw new IllegalArgumentException("values is null");
+		}
+		return filter(values.length, new Evaluation() {
+
+			@Override
+			public long evaluate(int start, int end) {
+				long word = 0;
+				for (int i = start; i < end; i++) {
+					double value = values[i];
+					word |= (minimum <= value & value <= maximum ? 1L : 0L) << i;
+				}
+				return word;
+			}
+
+		});
+	}
+
+	private IndexSet filter(int size, final Evaluation evaluation) {
+		final long[] words = new long[(size + 63) >>> 6];
+		int chunkWords = Math.max(MINIMUM_CHUNK_SIZE >>> 6, words.length / (parallelism * CHUNKS_PER_THREAD) + 1);
+		int numberOfChunks = (words.length + chunkWords - 1) / chunkWords;
+		if (numberOfChunks <= 1 || 1 == parallelism) {
+			evaluate(evaluation, words, size, 0, words.length);
+		} else {
+			Chunks chunks = new Chunks(evaluation, words, size, chunkWords, numberOfChunks);
+			int helpers = Math.min(parallelism, numberOfChunks) - 1;
+			for (int i = 0; i < helpers; i++) {
+				try {
+					executor.execute(chunks);
+				} catch (RejectedExecutionException e) {
+					break;
+				}
+			}
+			chunks.run();
+			chunks.await();
+		}
+		return new IndexSet(words, size);
+	}
+
+	private static void evaluate(Evaluation evaluation, long[] words, int size, int fromWord, int toWord) {
+		for (int wordIndex = fromWord; wordIndex < toWord; wordIndex++) {
+			int start = wordIndex << 6;
+			words[wordIndex] = evaluation.evaluate(start, Math.min(size, start + 64));
+		}
+	}
+
+	private static abstract class Evaluation {
+
+		public abstract long evaluate(int start, int end);
+
+	}
+
+	private static final class Chunks implements Runnable {
+
+		private final AtomicInteger nextChunk = new AtomicInteger();
+
+		private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+		private final Evaluation evaluation;
+
+		private final long[] words;
+
+		private final int size;
+
+		private final int chunkWords;
+
+		private final int numberOfChunks;
+
+		private final CountDownLatch completedChunks;
+
+		public Chunks(Evaluation evaluation, long[] words, int size, int chunkWords, int numberOfChunks) {
+			this.evaluation = evaluation;
+			this.words = words;
+			this.size = size;
+			this.chunkWords = chunkWords;
+			this.numberOfChunks = numberOfChunks;
+			this.completedChunks = new CountDownLatch(numberOfChunks);
+		}
+
+		@Override
+		public void run() {
+			int chunk;
+			while ((chunk = nextChunk.getAndIncrement()) < numberOfChunks) {
+				try {
+					int fromWord = chunk * chunkWords;
+					evaluate(evaluation, words, size, fromWord, Math.min(words.length, fromWord + chunkWords));
+				} catch (RuntimeException e) {
+					failure.compareAndSet(null, e);
+				} catch (Error e) {
+					failure.compareAndSet(null, e);
+				} finally {
+					completedChunks.countDown();
+				}
+			}
+		}
+
+		public void await() {
+			boolean interrupted = false;
+			while (true) {
+				try {
+					completedChunks.await();
+					break;
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+			Throwable firstFailure = failure.get();
+			if (firstFailure instanceof Error) {
+				throw (Error) firstFailure;
+			} else if (null != firstFailure) {
+				throw (RuntimeException) firstFailure;
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2016 Torsten Krause, Markenwerk GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.markenwerk.commons.predicates;
+
+import net.markenwerk.commons.interfaces.Predicate;
+
+/**
+ * A {@link PreFilteringPredicate} is a {@link Predicate} that only tests a
+ * subject with an expensive exact {@link Predicate}, if a cheap pre-filter
+ * {@link Predicate} yields {@literal true} for that subject.
+ *
+ * <p>
+ * The pre-filter must never yield false negatives, i.e. it must yield
+ * {@literal true} for every subject, for which the exact {@link Predicate}
+ * would yield {@literal true}. A {@link BloomFilterPredicate} or a
+ * {@link CuckooFilterPredicate} that contains every subject that satisfies the
+ * exact {@link Predicate} fulfills this requirement.
+ *
+ * @param <Subject>
+ *            The type of the subjects to be tested.
+ * @author Torsten Krause (tk at markenwerk dot net)
+ * @since 4.1.0
+ */
+public final class PreFilteringPredicate<Subject> implements Predicate<Subject> {
+
+	private final Predicate<? super Subject> filter;
+
+	private final Predicate<? super Subject> predicate;
+
+	/**
+	 * Creates a new {@link PreFilteringPredicate}.
+	 *
+	 * @param filter
+	 *            The cheap pre-filter {@link Predicate}.
+	 * @param predicate
+	 *            The expensive exact {@link Predicate}.
+	 * @throws IllegalArgumentException
+	 *             If the given pre-filter or the given {@link Predicate} is
+	 *             {@literal null}.
+	 */
+	public PreFilteringPredicate(Predicate<? super Subject> filter, Predicate<? super Subject> predicate)
+			throws IllegalArgumentException {
+		if (null == filter) {
+			throw new IllegalArgumentException("filter is null");
+		}
+		if (null == predicate) {
+			throw new IllegalArgumentException("predicate is null");
+		}
+		this.filter = filter;
+		this.predicate = predicate;
+	}
+
+	@Override
+	public boolean test(Subject subject) {
+		return filter.test(subject) && predicate.test(subject);
+	}
+
+}
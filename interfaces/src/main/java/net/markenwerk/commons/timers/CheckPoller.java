@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2016 Torsten Krause, Markenwerk GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.markenwerk.commons.timers;
+
+import java.util.concurrent.TimeUnit;
+
+import net.markenwerk.commons.interfaces.Callback;
+import net.markenwerk.commons.interfaces.Check;
+
+/**
+ * A {@link CheckPoller} repeatedly evaluates large numbers of {@link Check
+ * Checks} on a shared {@link HashedWheelTimer} and notifies a {@link Callback}
+ * as soon as a {@link Check} passes.
+ *
+ * <p>
+ * Every {@link Check} is polled with it's own adaptive backoff: The delay
+ * between two evaluations starts with an initial delay and is multiplied with
+ * the backoff factor of the {@link CheckPoller} after every failed evaluation,
+ * until it reaches the maximum delay. Checks that pass early are therefore
+ * detected quickly, while checks that take long don't waste CPU time.
+ *
+ * <p>
+ * No thread is blocked while a {@link Check} is polled. The {@link Check Checks}
+ * and {@link Callback Callbacks} are executed by the {@link HashedWheelTimer}.
+ * If they may take some time, the {@link HashedWheelTimer} should be created
+ * with an {@link java.util.concurrent.Executor}.
+ *
+ * @author Torsten Krause (tk at markenwerk dot net)
+ * @since 4.1.0
+ */
+public final class CheckPoller {
+
+	private final HashedWheelTimer timer;
+
+	private final double backoffFactor;
+
+	/**
+	 * Creates a new {@link CheckPoller} that doubles the delay after every
+	 * failed evaluation.
+	 *
+	 * @param timer
+	 *            The {@link HashedWheelTimer} to schedule evaluations with.
+	 * @throws IllegalArgumentException
+	 *             If the given {@link HashedWheelTimer} is {@literal null}.
+	 */
+	public CheckPoller(HashedWheelTimer timer) throws IllegalArgumentException {
+		this(timer, 2);
+	}
+
+	/**
+	 * Creates a new {@link CheckPoller}.
+	 *
+	 * @param timer
+	 *            The {@link HashedWheelTimer} to schedule evaluations with.
+	 * @param backoffFactor
+	 *            The factor to multiply the delay with after every failed
+	 *            evaluation.
+	 * @throws IllegalArgumentException
+	 *             If the given {@link HashedWheelTimer} is {@literal null} or
+	 *             if the given backoff factor is less than one.
+	 */
+	public CheckPoller(HashedWheelTimer timer, double backoffFactor) throws IllegalArgumentException {
+		if (null == timer) {
+			throw new IllegalArgumentException("timer is null");
+		}
+		if (!(backoffFactor >= 1)) {
+			throw new IllegalArgumentException("backoffFactor is less than one");
+		}
+		this.timer = timer;
+		this.backoffFactor = backoffFactor;
+	}
+
+	/**
+	 * Starts to poll the given {@link Check}. The first evaluation is performed
+	 * after the given initial delay.
+	 *
+	 * <p>
+	 * The given {@link Callback} is called exactly once, with
+	 * {@link Boolean#TRUE}, as soon as the given {@link Check} passes, or with
+	 * {@link Boolean#FALSE}, if the given {@link Check} didn't pass within the
+	 * given timeout. A {@link Check} that throws an exception is considered to
+	 * have failed. If the {@link HashedWheelTimer} is stopped while the given
+	 * {@link Check} is polled, the given {@link Callback} is called with
+	 * {@link Boolean#FALSE}, if an evaluation is in progress, and not at all
+	 * otherwise.
+	 *
+	 * @param check
+	 *            The {@link Check} to be polled.
+	 * @param callback
+	 *            The {@link Callback} to be notified.
+	 * @param initialDelay
+	 *            The delay before the first evaluation.
+	 * @param maximumDelay
+	 *            The maximum delay between two evaluations.
+	 * @param timeout
+	 *            The time after which polling is given up or a non-positive
+	 *            value, to poll until the {@link Check} passes or polling is
+	 *            cancelled.
+	 * @param unit
+	 *            The {@link TimeUnit} of the given delays and timeout.
+	 * @return The {@link CheckPolling} that can be used to cancel polling.
+	 * @throws IllegalArgumentException
+	 *             If the given {@link Check}, the given {@link Callback} or the
+	 *             given {@link TimeUnit} is {@literal null} or if the given
+	 *             initial delay is negative or greater than the given maximum
+	 *             delay.
+	 * @throws IllegalStateException
+	 *             If the {@link HashedWheelTimer} has been stopped.
+	 */
+	public CheckPolling poll(Check check, Callback<? super Check, ? super Boolean> callback, long initialDelay,
+			long maximumDelay, long timeout, TimeUnit unit) throws IllegalArgumentException, IllegalStateException {
+		if (null == check) {
+			throw new IllegalArgumentException("check is null");
+		}
+		if (null == callback) {
+			throw new IllegalArgumentException("callback is null");
+		}
+		if (null == unit) {
+			throw new IllegalArgumentException("unit is null");
+		}
+		if (initialDelay < 0 || initialDelay > maximumDelay) {
+			throw new IllegalArgumentException("initialDelay is negative or greater than maximumDelay");
+		}
+		long deadline = timeout > 0 ? System.nanoTime() + unit.toNanos(timeout) : Long.MAX_VALUE;
+		CheckPolling polling = new CheckPolling(this, check, callback, unit.toNanos(maximumDelay), deadline);
+		polling.schedule(unit.toNanos(initialDelay));
+		return polling;
+	}
+
+	HashedWheelTimer getTimer() {
+		return timer;
+	}
+
+	double getBackoffFactor() {
+		return backoffFactor;
+	}
+
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2016 Torsten Krause, Markenwerk GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.markenwerk.commons.timers;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import net.markenwerk.commons.interfaces.Callback;
+import net.markenwerk.commons.interfaces.Check;
+
+/**
+ * A {@link CheckPolling} is a handle for a {@link Check} that is being polled
+ * by a {@link CheckPoller}.
+ *
+ * @author Torsten Krause (tk at markenwerk dot net)
+ * @since 4.1.0
+ */
+public final class CheckPolling {
+
+	private final AtomicBoolean done = new AtomicBoolean();
+
+	private final Runnable evaluation = new Runnable() {
+
+		@Override
+		public void run() {
+			evaluate();
+		}
+
+	};
+
+	private final CheckPoller poller;
+
+	private final Check check;
+
+	private final Callback<? super Check, ? super Boolean> callback;
+
+	private final long maximumDelay;
+
+	private final long deadline;
+
+	private long delay;
+
+	private volatile Timeout timeout;
+
+	CheckPolling(CheckPoller poller, Check check, Callback<? super Check, ? super Boolean> callback,
+			long maximumDelay, long deadline) {
+		this.poller = poller;
+		this.check = check;
+		this.callback = callback;
+		this.maximumDelay = maximumDelay;
+		this.deadline = deadline;
+	}
+
+	/**
+	 * Cancels the polling. The {@link Callback} won't be notified, if the
+	 * polling is cancelled before the {@link Check} passed or the timeout has
+	 * been reached.
+	 *
+	 * @return Whether the polling has been cancelled by this call.
+	 */
+	public boolean cancel() {
+		if (done.compareAndSet(false, true)) {
+			Timeout currentTimeout = timeout;
+			if (null != currentTimeout) {
+				currentTimeout.cancel();
+			}
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Returns whether the polling has been finished, either because the
+	 * {@link Check} passed, because the timeout has been reached or because the
+	 * polling has been cancelled.
+	 *
+	 * @return Whether the polling has been finished.
+	 */
+	public boolean isDone() {
+		return done.get();
+	}
+
+	void schedule(long nextDelay) throws IllegalStateException {
+		delay = nextDelay;
+		timeout = poller.getTimer().schedule(evaluation, nextDelay, TimeUnit.NANOSECONDS);
+		if (done.get()) {
+			timeout.cancel();
+		}
+	}
+
+	private void evaluate() {
+		if (done.get()) {
+			return;
+		}
+		boolean passed;
+		try {
+			passed = check.test();
+		} catch (RuntimeException e) {
+			passed = false;
+		}
+		if (passed) {
+			finish(true);
+			return;
+		}
+		long remainingTime = Long.MAX_VALUE;
+		if (Long.MAX_VALUE != deadline) {
+			remainingTime = deadline - System.nanoTime();
+			if (remainingTime <= 0) {
+				finish(false);
+				return;
+			}
+		}
+		long nextDelay = (long) Math.min(maximumDelay, Math.max(1, delay) * poller.getBackoffFactor());
+		try {
+			schedule(Math.min(nextDelay, remainingTime));
+		} catch (IllegalStateException e) {
+			finish(false);
+		}
+	}
+
+	private void finish(boolean passed) {
+		if (done.compareAndSet(false, true)) {
+			callback.onResult(check, Boolean.valueOf(passed));
+		}
+	}
+
+}
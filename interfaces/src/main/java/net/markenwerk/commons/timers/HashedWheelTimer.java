@@ -0,0 +1,315 @@
+/*
+ * Copyright (c) 2016 Torsten Krause, Markenwerk GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.markenwerk.commons.timers;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link HashedWheelTimer} executes tasks after a delay, with a precision of
+ * one tick, and is optimized for very large numbers of pending tasks that are
+ * usually cancelled before they expire.
+ *
+ * <p>
+ * Scheduled tasks are kept in a wheel of buckets, where each bucket holds the
+ * tasks that expire in a certain tick of a rotation of the wheel. A single
+ * worker thread advances the wheel once per tick and expires the tasks of the
+ * current bucket, whose deadline has been reached. Scheduling a task appends it
+ * to a lock-free queue, from which the worker thread moves it into it's bucket
+ * on the next tick. Cancelling a task marks it with a compare-and-set operation
+ * and appends it to another lock-free queue, from which the worker thread
+ * unlinks it from it's bucket on the next tick. Both queues link the
+ * {@link Timeout Timeouts} with fields of the {@link Timeout} itself. Both
+ * operations are therefore performed in constant time, without a lock and
+ * without creating further objects than the {@link Timeout} itself.
+ *
+ * <p>
+ * Expired tasks are executed on the worker thread, unless an {@link Executor}
+ * is supplied. Tasks that are executed on the worker thread must be short,
+ * because they delay the expiration of all other tasks.
+ *
+ * @author Torsten Krause (tk at markenwerk dot net)
+ * @since 4.1.0
+ */
+public final class HashedWheelTimer {
+
+	private static final int MAXIMUM_TRANSFERS_PER_TICK = 100000;
+
+	private final TimeoutQueue pendingTimeouts = new TimeoutQueue(Timeout.NEXT_PENDING);
+
+	private final TimeoutQueue cancelledTimeouts = new TimeoutQueue(Timeout.NEXT_CANCELLED);
+
+	private final long tickDuration;
+
+	private final Bucket[] wheel;
+
+	private final int mask;
+
+	private final Executor executor;
+
+	private final long startTime;
+
+	private final Thread worker;
+
+	private volatile boolean running = true;
+
+	/**
+	 * Creates a new {@link HashedWheelTimer} that executes expired tasks on
+	 * it's worker thread.
+	 *
+	 * @param tickDuration
+	 *            The duration of a tick.
+	 * @param unit
+	 *            The {@link TimeUnit} of the given duration.
+	 * @param ticksPerWheel
+	 *            The number of buckets of the wheel. Will be rounded up to the
+	 *            next power of two.
+	 * @throws IllegalArgumentException
+	 *             If the given {@link TimeUnit} is {@literal null} or if the
+	 *             given duration or number of buckets is not positive.
+	 */
+	public HashedWheelTimer(long tickDuration, TimeUnit unit, int ticksPerWheel) throws IllegalArgumentException {
+		this(tickDuration, unit, ticksPerWheel, null);
+	}
+
+	/**
+	 * Creates a new {@link HashedWheelTimer}.
+	 *
+	 * @param tickDuration
+	 *            The duration of a tick.
+	 * @param unit
+	 *            The {@link TimeUnit} of the given duration.
+	 * @param ticksPerWheel
+	 *            The number of buckets of the wheel. Will be rounded up to the
+	 *            next power of two.
+	 * @param executor
+	 *            The {@link Executor} to execute expired tasks with or
+	 *            {@literal null}, to execute expired tasks on the worker
+	 *            thread.
+	 * @throws IllegalArgumentException
+	 *             If the given {@link TimeUnit} is {@literal null} or if the
+	 *             given duration or number of buckets is not positive or too
+	 *             large.
+	 */
+	public HashedWheelTimer(long tickDuration, TimeUnit unit, int ticksPerWheel, Executor executor)
+			throws IllegalArgumentException {
+		if (null == unit) {
+			throw new IllegalArgumentException("unit is null");
+		}
+		if (tickDuration <= 0) {
+			throw new IllegalArgumentException("tickDuration is not positive");
+		}
+		if (ticksPerWheel <= 0 || ticksPerWheel > 1 << 30) {
+			throw new IllegalArgumentException("ticksPerWheel is not between 1 and " + (1 << 30));
+		}
+		this.tickDuration = Math.max(1, unit.toNanos(tickDuration));
+		this.executor = executor;
+		wheel = new Bucket[Integer.highestOneBit(ticksPerWheel * 2 - 1)];
+		for (int i = 0; i < wheel.length; i++) {
+			wheel[i] = new Bucket();
+		}
+		mask = wheel.length - 1;
+		startTime = System.nanoTime();
+		worker = new Thread(new Worker(), "HashedWheelTimer");
+		worker.setDaemon(true);
+		worker.start();
+	}
+
+	/**
+	 * Schedules the given task for execution after the given delay.
+	 *
+	 * @param task
+	 *            The task to be executed.
+	 * @param delay
+	 *            The delay after which the task is to be executed.
+	 * @param unit
+	 *            The {@link TimeUnit} of the given delay.
+	 * @return The {@link Timeout} for the scheduled task.
+	 * @throws IllegalArgumentException
+	 *             If the given task or the given {@link TimeUnit} is
+	 *             {@literal null}.
+	 * @throws IllegalStateException
+	 *             If this {@link HashedWheelTimer} has been stopped.
+	 */
+	public Timeout schedule(Runnable task, long delay, TimeUnit unit) throws IllegalArgumentException,
+			IllegalStateException {
+		if (null == task) {
+			throw new IllegalArgumentException("task is null");
+		}
+		if (null == unit) {
+			throw new IllegalArgumentException("unit is null");
+		}
+		if (!running) {
+			throw new IllegalStateException("Timer has been stopped");
+		}
+		long deadline = System.nanoTime() + Math.max(0, unit.toNanos(delay)) - startTime;
+		Timeout timeout = new Timeout(this, task, deadline);
+		pendingTimeouts.offer(timeout);
+		return timeout;
+	}
+
+	/**
+	 * Stops this {@link HashedWheelTimer}. Pending tasks will not be executed.
+	 */
+	public void stop() {
+		running = false;
+		worker.interrupt();
+	}
+
+	void cancelled(Timeout timeout) {
+		cancelledTimeouts.offer(timeout);
+	}
+
+	private final class Worker implements Runnable {
+
+		private long tick;
+
+		@Override
+		public void run() {
+			while (running) {
+				long currentTime = awaitNextTick();
+				if (!running) {
+					break;
+				}
+				removeCancelledTimeouts();
+				transferPendingTimeouts();
+				wheel[(int) (tick & mask)].expireTimeouts(currentTime);
+				tick++;
+			}
+			pendingTimeouts.clear();
+			cancelledTimeouts.clear();
+		}
+
+		private long awaitNextTick() {
+			long deadline = tickDuration * (tick + 1);
+			while (true) {
+				long currentTime = System.nanoTime() - startTime;
+				long sleepTime = deadline - currentTime;
+				if (sleepTime <= 0) {
+					return currentTime;
+				}
+				try {
+					TimeUnit.NANOSECONDS.sleep(sleepTime);
+				} catch (InterruptedException e) {
+					if (!running) {
+						return currentTime;
+					}
+				}
+			}
+		}
+
+		private void removeCancelledTimeouts() {
+			Timeout timeout;
+			while (null != (timeout = cancelledTimeouts.poll())) {
+				if (null != timeout.bucket) {
+					timeout.bucket.remove(timeout);
+				}
+			}
+		}
+
+		private void transferPendingTimeouts() {
+			for (int i = 0; i < MAXIMUM_TRANSFERS_PER_TICK; i++) {
+				Timeout timeout = pendingTimeouts.poll();
+				if (null == timeout) {
+					return;
+				} else if (timeout.isCancelled()) {
+					continue;
+				}
+				long expirationTick = timeout.deadline / tickDuration;
+				timeout.remainingRounds = (expirationTick - tick) / wheel.length;
+				wheel[(int) (Math.max(expirationTick, tick) & mask)].add(timeout);
+			}
+		}
+
+	}
+
+	final class Bucket {
+
+		private Timeout head;
+
+		private Timeout tail;
+
+		void add(Timeout timeout) {
+			timeout.bucket = this;
+			if (null == head) {
+				head = tail = timeout;
+			} else {
+				tail.next = timeout;
+				timeout.previous = tail;
+				tail = timeout;
+			}
+		}
+
+		void expireTimeouts(long currentTime) {
+			Timeout timeout = head;
+			while (null != timeout) {
+				Timeout next = timeout.next;
+				if (timeout.remainingRounds <= 0 && timeout.deadline <= currentTime) {
+					remove(timeout);
+					if (timeout.expire()) {
+						execute(timeout.task);
+					}
+				} else if (timeout.isCancelled()) {
+					remove(timeout);
+				} else {
+					timeout.remainingRounds--;
+				}
+				timeout = next;
+			}
+		}
+
+		void remove(Timeout timeout) {
+			if (null != timeout.previous) {
+				timeout.previous.next = timeout.next;
+			}
+			if (null != timeout.next) {
+				timeout.next.previous = timeout.previous;
+			}
+			if (head == timeout) {
+				head = timeout.next;
+			}
+			if (tail == timeout) {
+				tail = timeout.previous;
+			}
+			timeout.previous = null;
+			timeout.next = null;
+			timeout.bucket = null;
+		}
+
+		private void execute(Runnable task) {
+			try {
+				if (null == executor) {
+					task.run();
+				} else {
+					executor.execute(task);
+				}
+			} catch (RejectedExecutionException e) {
+				// the executor has been shut down
+			} catch (RuntimeException e) {
+				// a failing task must not stop the worker thread
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2016 Torsten Krause, Markenwerk GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.markenwerk.commons.timers;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * A {@link Timeout} is a handle for a task that has been scheduled with a
+ * {@link HashedWheelTimer}.
+ *
+ * @author Torsten Krause (tk at markenwerk dot net)
+ * @since 4.1.0
+ */
+public final class Timeout {
+
+	static final int PENDING = 0;
+
+	static final int CANCELLED = 1;
+
+	static final int EXPIRED = 2;
+
+	private static final AtomicIntegerFieldUpdater<Timeout> STATE = AtomicIntegerFieldUpdater.newUpdater(
+			Timeout.class, "state");
+
+	static final AtomicReferenceFieldUpdater<Timeout, Timeout> NEXT_PENDING = AtomicReferenceFieldUpdater
+			.newUpdater(Timeout.class, Timeout.class, "nextPending");
+
+	static final AtomicReferenceFieldUpdater<Timeout, Timeout> NEXT_CANCELLED = AtomicReferenceFieldUpdater
+			.newUpdater(Timeout.class, Timeout.class, "nextCancelled");
+
+	final HashedWheelTimer timer;
+
+	final Runnable task;
+
+	final long deadline;
+
+	long remainingRounds;
+
+	Timeout next;
+
+	Timeout previous;
+
+	HashedWheelTimer.Bucket bucket;
+
+	private volatile int state;
+
+	private volatile Timeout nextPending;
+
+	private volatile Timeout nextCancelled;
+
+	Timeout(HashedWheelTimer timer, Runnable task, long deadline) {
+		this.timer = timer;
+		this.task = task;
+		this.deadline = deadline;
+	}
+
+	/**
+	 * Cancels the scheduled task, if it hasn't been expired yet.
+	 *
+	 * <p>
+	 * Cancellation is performed in constant time. The memory held by a
+	 * cancelled {@link Timeout} is released by the {@link HashedWheelTimer} on
+	 * it's next tick.
+	 *
+	 * @return Whether the scheduled task has been cancelled by this call.
+	 */
+	public boolean cancel() {
+		if (STATE.compareAndSet(this, PENDING, CANCELLED)) {
+			timer.cancelled(this);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Returns whether the scheduled task has been cancelled.
+	 *
+	 * @return Whether the scheduled task has been cancelled.
+	 */
+	public boolean isCancelled() {
+		return CANCELLED == state;
+	}
+
+	/**
+	 * Returns whether the scheduled task has been expired, i.e. whether the
+	 * scheduled task has been executed or handed to the executor of the
+	 * {@link HashedWheelTimer}.
+	 *
+	 * @return Whether the scheduled task has been expired.
+	 */
+	public boolean isExpired() {
+		return EXPIRED == state;
+	}
+
+	boolean expire() {
+		return STATE.compareAndSet(this, PENDING, EXPIRED);
+	}
+
+}
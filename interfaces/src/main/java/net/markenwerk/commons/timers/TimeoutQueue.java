@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2016 Torsten Krause, Markenwerk GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.markenwerk.commons.timers;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * A {@link TimeoutQueue} is an intrusive, lock-free queue of {@link Timeout
+ * Timeouts} for multiple producers and a single consumer.
+ *
+ * <p>
+ * The queue links the enqueued {@link Timeout Timeouts} with a field of the
+ * {@link Timeout} itself, such that enqueuing a {@link Timeout} doesn't create
+ * any further objects. Enqueuing a {@link Timeout} is a single atomic swap of
+ * the tail of the queue. Every {@link Timeout} must be enqueued at most once
+ * into the same {@link TimeoutQueue}.
+ *
+ * @author Torsten Krause (tk at markenwerk dot net)
+ * @since 4.1.0
+ */
+final class TimeoutQueue {
+
+	private final AtomicReferenceFieldUpdater<Timeout, Timeout> link;
+
+	private final Timeout stub = new Timeout(null, null, 0);
+
+	private final AtomicReference<Timeout> tail = new AtomicReference<Timeout>(stub);
+
+	private Timeout head = stub;
+
+	TimeoutQueue(AtomicReferenceFieldUpdater<Timeout, Timeout> link) {
+		this.link = link;
+	}
+
+	public void offer(Timeout timeout) {
+		link.lazySet(timeout, null);
+		Timeout previous = tail.getAndSet(timeout);
+		link.set(previous, timeout);
+	}
+
+	public Timeout poll() {
+		Timeout first = head;
+		Timeout next = link.get(first);
+		if (stub == first) {
+			if (null == next) {
+				return null;
+			}
+			head = first = next;
+			next = link.get(next);
+		}
+		if (null != next) {
+			head = next;
+			link.lazySet(first, null);
+			return first;
+		}
+		if (tail.get() != first) {
+			// a producer has swapped the tail, but not yet linked it's timeout
+			return null;
+		}
+		offer(stub);
+		next = link.get(first);
+		if (null != next) {
+			head = next;
+			link.lazySet(first, null);
+			return first;
+		}
+		return null;
+	}
+
+	public void clear() {
+		while (null != poll()) {
+		}
+	}
+
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2016 Torsten Krause, Markenwerk GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.markenwerk.commons.translators;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+
+import net.markenwerk.commons.exceptions.ConversionException;
+import net.markenwerk.commons.interfaces.Translator;
+
+/**
+ * An {@link AbstractByteBufferTranslator} is a {@link Translator} that encodes
+ * values directly into and decodes values directly out of a {@link ByteBuffer}
+ * , without intermediate byte arrays.
+ *
+ * <p>
+ * {@link AbstractByteBufferTranslator#convert(Object)} encodes the given value
+ * into the scratch buffer that has been supplied to the constructor and
+ * returns that buffer, flipped so that the encoded bytes are between it's
+ * position and it's limit. The returned buffer is reused for every conversion
+ * and therefore only valid until the next call to
+ * {@link AbstractByteBufferTranslator#convert(Object)}. This also implies that
+ * a {@link AbstractByteBufferTranslator} is not thread-safe.
+ *
+ * <p>
+ * {@link AbstractByteBufferTranslator#revert(ByteBuffer)} decodes a single value
+ * starting at the position of the given buffer and advances the position of
+ * the given buffer behind the decoded value. This allows to decode consecutive
+ * values straight out of a (possibly direct or mapped) buffer.
+ *
+ * <p>
+ * To encode a value directly into an arbitrary buffer, e.g. a mapped region of
+ * a file, {@link AbstractByteBufferTranslator#write(Object, ByteBuffer)} can be
+ * used.
+ *
+ * <p>
+ * If an encoding or decoding fails, a {@link ConversionException} is thrown and
+ * the position of the involved buffer is reset to it's original value.
+ *
+ * @param <Value>
+ *            The type of the values to be translated.
+ * @author Torsten Krause (tk at markenwerk dot net)
+ * @since 4.1.0
+ */
+public abstract class AbstractByteBufferTranslator<Value> implements Translator<Value, ByteBuffer> {
+
+	private final ByteBuffer buffer;
+
+	/**
+	 * Creates a new {@link AbstractByteBufferTranslator}.
+	 *
+	 * @param buffer
+	 *            The scratch buffer to be used by
+	 *            {@link AbstractByteBufferTranslator#convert(Object)}.
+	 * @throws IllegalArgumentException
+	 *             If the given buffer is {@literal null}.
+	 */
+	protected AbstractByteBufferTranslator(ByteBuffer buffer) throws IllegalArgumentException {
+		if (null == buffer) {
+			throw new IllegalArgumentException("buffer is null");
+		}
+		this.buffer = buffer;
+	}
+
+	@Override
+	public final ByteBuffer convert(Value value) throws ConversionException {
+		if (null == value) {
+			return null;
+		} else {
+			buffer.clear();
+			write(value, buffer);
+			buffer.flip();
+			return buffer;
+		}
+	}
+
+	@Override
+	public final Value revert(ByteBuffer buffer) throws ConversionException {
+		if (null == buffer) {
+			return null;
+		} else {
+			return read(buffer);
+		}
+	}
+
+	/**
+	 * Encodes the given value into the given buffer, starting at the position
+	 * of the given buffer and advances the position of the given buffer behind
+	 * the encoded value.
+	 *
+	 * @param value
+	 *            The value to be encoded.
+	 * @param buffer
+	 *            The buffer to encode the value into.
+	 * @throws ConversionException
+	 *             If the given value is {@literal null}, if the given value
+	 *             couldn't be encoded or if the remaining space of the given
+	 *             buffer is insufficient.
+	 */
+	public final void write(Value value, ByteBuffer buffer) throws ConversionException {
+		if (null == value) {
+			throw new ConversionException("value is null");
+		}
+		int position = buffer.position();
+		try {
+			encode(value, buffer);
+		} catch (BufferOverflowException e) {
+			buffer.position(position);
+			throw new ConversionException("Insufficient space to encode value", e);
+		} catch (ReadOnlyBufferException e) {
+			buffer.position(position);
+			throw new ConversionException("Buffer is read-only", e);
+		} catch (ConversionException e) {
+			buffer.position(position);
+			throw e;
+		}
+	}
+
+	/**
+	 * Decodes a single value from the given buffer, starting at the position
+	 * of the given buffer and advances the position of the given buffer behind
+	 * the decoded value.
+	 *
+	 * @param buffer
+	 *            The buffer to decode the value from.
+	 * @return The decoded value.
+	 * @throws ConversionException
+	 *             If the bytes in the given buffer are malformed or if the
+	 *             given buffer doesn't contain a complete value.
+	 */
+	public final Value read(ByteBuffer buffer) throws ConversionException {
+		int position = buffer.position();
+		try {
+			return decode(buffer);
+		} catch (BufferUnderflowException e) {
+			buffer.position(position);
+			throw new ConversionException("Insufficient data to decode value", e);
+		} catch (ConversionException e) {
+			buffer.position(position);
+			throw e;
+		}
+	}
+
+	/**
+	 * Called to encode a given value.
+	 *
+	 * @param value
+	 *            The value to be encoded. Never {@literal null}.
+	 * @param buffer
+	 *            The buffer to encode the value into.
+	 * @throws ConversionException
+	 *             If the given value couldn't be encoded.
+	 * @throws BufferOverflowException
+	 *             If the remaining space of the given buffer is insufficient.
+	 */
+	protected abstract void encode(Value value, ByteBuffer buffer) throws ConversionException,
+			BufferOverflowException;
+
+	/**
+	 * Called to decode a value.
+	 *
+	 * @param buffer
+	 *            The buffer to decode the value from.
+	 * @return The decoded value.
+	 * @throws ConversionException
+	 *             If the bytes in the given buffer are malformed.
+	 * @throws BufferUnderflowException
+	 *             If the given buffer doesn't contain a complete value.
+	 */
+	protected abstract Value decode(ByteBuffer buffer) throws ConversionException, BufferUnderflowException;
+
+}
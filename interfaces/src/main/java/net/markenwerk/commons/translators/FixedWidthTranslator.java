@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2016 Torsten Krause, Markenwerk GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.markenwerk.commons.translators;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+import net.markenwerk.commons.exceptions.ConversionException;
+import net.markenwerk.commons.interfaces.Translator;
+
+/**
+ * A {@link FixedWidthTranslator} is a {@link Translator} that encodes records
+ * into a fixed number of bytes.
+ *
+ * <p>
+ * Implementers only need to write and read the fields of a record with the
+ * relative methods of {@link ByteBuffer}. While a record is encoded or decoded,
+ * the limit of the involved buffer is narrowed to the width of the record, such
+ * that an implementation can't write or read past the end of the record.
+ * Records that are encoded into less bytes than the width of the record are
+ * padded with zeros. Reading always advances the position of the involved
+ * buffer by the width of the record.
+ *
+ * <p>
+ * Fields are encoded with the byte order of the involved buffer.
+ *
+ * @param <Record>
+ *            The type of the records to be translated.
+ * @author Torsten Krause (tk at markenwerk dot net)
+ * @since 4.1.0
+ */
+public abstract class FixedWidthTranslator<Record> extends AbstractByteBufferTranslator<Record> {
+
+	private final int width;
+
+	/**
+	 * Creates a new {@link FixedWidthTranslator}.
+	 *
+	 * @param buffer
+	 *            The scratch buffer to be used by
+	 *            {@link FixedWidthTranslator#convert(Object)}.
+	 * @param width
+	 *            The width of an encoded record in bytes.
+	 * @throws IllegalArgumentException
+	 *             If the given buffer is {@literal null} or if the given width
+	 *             is not positive.
+	 */
+	protected FixedWidthTranslator(ByteBuffer buffer, int width) throws IllegalArgumentException {
+		super(buffer);
+		if (width <= 0) {
+			throw new IllegalArgumentException("width is not positive");
+		}
+		this.width = width;
+	}
+
+	/**
+	 * Returns the width of an encoded record in bytes.
+	 *
+	 * @return The width of an encoded record.
+	 */
+	public final int getWidth() {
+		return width;
+	}
+
+	@Override
+	protected final void encode(Record record, ByteBuffer buffer) throws ConversionException,
+			BufferOverflowException {
+		if (buffer.remaining() < width) {
+			throw new BufferOverflowException();
+		}
+		int limit = buffer.limit();
+		buffer.limit(buffer.position() + width);
+		try {
+			encodeRecord(record, buffer);
+			while (buffer.hasRemaining()) {
+				buffer.put((byte) 0);
+			}
+		} catch (BufferOverflowException e) {
+			throw new ConversionException("Record exceeds width of " + width + " bytes", e);
+		} finally {
+			buffer.limit(limit);
+		}
+	}
+
+	@Override
+	protected final Record decode(ByteBuffer buffer) throws ConversionException, BufferUnderflowException {
+		if (buffer.remaining() < width) {
+			throw new BufferUnderflowException();
+		}
+		int limit = buffer.limit();
+		int end = buffer.position() + width;
+		buffer.limit(end);
+		try {
+			Record record = decodeRecord(buffer);
+			buffer.position(end);
+			return record;
+		} catch (BufferUnderflowException e) {
+			throw new ConversionException("Record exceeds width of " + width + " bytes", e);
+		} finally {
+			buffer.limit(limit);
+		}
+	}
+
+	/**
+	 * Called to encode the fields of a given record.
+	 *
+	 * @param record
+	 *            The record to be encoded. Never {@literal null}.
+	 * @param buffer
+	 *            The buffer to encode the record into, limited to the width of
+	 *            the record.
+	 * @throws ConversionException
+	 *             If the given record couldn't be encoded.
+	 */
+	protected abstract void encodeRecord(Record record, ByteBuffer buffer) throws ConversionException;
+
+	/**
+	 * Called to decode the fields of a record.
+	 *
+	 * @param buffer
+	 *            The buffer to decode the record from, limited to the width of
+	 *            the record.
+	 * @return The decoded record.
+	 * @throws ConversionException
+	 *             If the fields in the given buffer are malformed.
+	 */
+	protected abstract Record decodeRecord(ByteBuffer buffer) throws ConversionException;
+
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2016 Torsten Krause, Markenwerk GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.markenwerk.commons.translators;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+import net.markenwerk.commons.exceptions.ConversionException;
+import net.markenwerk.commons.interfaces.Translator;
+
+/**
+ * A {@link Utf8StringTranslator} is a {@link Translator} that encodes
+ * {@link String} values as UTF-8, prefixed with the length of the encoded
+ * bytes as a variable length integer.
+ *
+ * <p>
+ * Characters are encoded and decoded directly from and to the involved buffer.
+ * Strings that contain unpaired surrogates can't be encoded and byte sequences
+ * that aren't well-formed UTF-8 (including overlong encodings and encoded
+ * surrogates) can't be decoded.
+ *
+ * @author Torsten Krause (tk at markenwerk dot net)
+ * @since 4.1.0
+ */
+public final class Utf8StringTranslator extends AbstractByteBufferTranslator<String> {
+
+	/**
+	 * Creates a new {@link Utf8StringTranslator}.
+	 *
+	 * @param buffer
+	 *            The scratch buffer to be used by
+	 *            {@link Utf8StringTranslator#convert(Object)}.
+	 * @throws IllegalArgumentException
+	 *             If the given buffer is {@literal null}.
+	 */
+	public Utf8StringTranslator(ByteBuffer buffer) throws IllegalArgumentException {
+		super(buffer);
+	}
+
+	@Override
+	protected void encode(String value, ByteBuffer buffer) throws ConversionException, BufferOverflowException {
+		int length = value.length();
+		VarInts.writeInt(encodedLength(value), buffer);
+		for (int i = 0; i < length; i++) {
+			char current = value.charAt(i);
+			if (current < 0x80) {
+				buffer.put((byte) current);
+			} else if (current < 0x800) {
+				buffer.put((byte) (0xC0 | (current >> 6)));
+				buffer.put((byte) (0x80 | (current & 0x3F)));
+			} else if (Character.isHighSurrogate(current)) {
+				int codePoint = Character.toCodePoint(current, value.charAt(++i));
+				buffer.put((byte) (0xF0 | (codePoint >> 18)));
+				buffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+				buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+				buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+			} else {
+				buffer.put((byte) (0xE0 | (current >> 12)));
+				buffer.put((byte) (0x80 | ((current >> 6) & 0x3F)));
+				buffer.put((byte) (0x80 | (current & 0x3F)));
+			}
+		}
+	}
+
+	private static int encodedLength(String value) throws ConversionException {
+		int length = value.length();
+		int encodedLength = 0;
+		for (int i = 0; i < length; i++) {
+			char current = value.charAt(i);
+			if (current < 0x80) {
+				encodedLength += 1;
+			} else if (current < 0x800) {
+				encodedLength += 2;
+			} else if (Character.isHighSurrogate(current)) {
+				if (i + 1 == length || !Character.isLowSurrogate(value.charAt(i + 1))) {
+					throw new ConversionException("Unpaired high surrogate at index " + i);
+				}
+				encodedLength += 4;
+				i++;
+			} else if (Character.isLowSurrogate(current)) {
+				throw new ConversionException("Unpaired low surrogate at index " + i);
+			} else {
+				encodedLength += 3;
+			}
+		}
+		return encodedLength;
+	}
+
+	@Override
+	protected String decode(ByteBuffer buffer) throws ConversionException, BufferUnderflowException {
+		int length = VarInts.readInt(buffer);
+		if (length < 0) {
+			throw new ConversionException("Malformed length: " + (length & 0xFFFFFFFFL));
+		} else if (length > buffer.remaining()) {
+			throw new BufferUnderflowException();
+		}
+		char[] characters = new char[length];
+		int count = 0;
+		int position = buffer.position();
+		int end = position + length;
+		while (position < end) {
+			int current = buffer.get(position++) & 0xFF;
+			if (current < 0x80) {
+				characters[count++] = (char) current;
+			} else if (current < 0xC2) {
+				throw new ConversionException("Malformed UTF-8: invalid leading byte at offset " + (position - 1));
+			} else if (current < 0xE0) {
+				int codePoint = ((current & 0x1F) << 6) | continuation(buffer, position++, end);
+				characters[count++] = (char) codePoint;
+			} else if (current < 0xF0) {
+				int codePoint = ((current & 0x0F) << 12) | (continuation(buffer, position++, end) << 6)
+						| continuation(buffer, position++, end);
+				if (codePoint < 0x800 || (codePoint >= 0xD800 && codePoint <= 0xDFFF)) {
+					throw new ConversionException("Malformed UTF-8: invalid code point at offset " + (position - 3));
+				}
+				characters[count++] = (char) codePoint;
+			} else if (current < 0xF5) {
+				int codePoint = ((current & 0x07) << 18) | (continuation(buffer, position++, end) << 12)
+						| (continuation(buffer, position++, end) << 6) | continuation(buffer, position++, end);
+				if (codePoint < 0x10000 || codePoint > 0x10FFFF) {
+					throw new ConversionException("Malformed UTF-8: invalid code point at offset " + (position - 4));
+				}
+				codePoint -= 0x10000;
+				characters[count++] = (char) (0xD800 | (codePoint >> 10));
+				characters[count++] = (char) (0xDC00 | (codePoint & 0x3FF));
+			} else {
+				throw new ConversionException("Malformed UTF-8: invalid leading byte at offset " + (position - 1));
+			}
+		}
+		buffer.position(end);
+		return new String(characters, 0, count);
+	}
+
+	private static int continuation(ByteBuffer buffer, int position, int end) throws ConversionException {
+		if (position >= end) {
+			throw new ConversionException("Malformed UTF-8: truncated sequence at offset " + position);
+		}
+		int current = buffer.get(position) & 0xFF;
+		if (0x80 != (current & 0xC0)) {
+			throw new ConversionException("Malformed UTF-8: invalid continuation byte at offset " + position);
+		}
+		return current & 0x3F;
+	}
+
+}
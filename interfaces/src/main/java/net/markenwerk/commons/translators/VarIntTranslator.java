@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2016 Torsten Krause, Markenwerk GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.markenwerk.commons.translators;
+
+import java.nio.ByteBuffer;
+
+import net.markenwerk.commons.interfaces.Translator;
+
+/**
+ * A {@link VarIntTranslator} is a {@link Translator} that encodes
+ * {@link Integer} values as variable length integers (unsigned LEB128) of one
+ * to five bytes.
+ *
+ * <p>
+ * Negative values always occupy five bytes, unless the zig-zag encoding is
+ * used, which maps small negative values to small unsigned values.
+ *
+ * @author Torsten Krause (tk at markenwerk dot net)
+ * @since 4.1.0
+ */
+public final class VarIntTranslator extends AbstractByteBufferTranslator<Integer> {
+
+	private final boolean zigZag;
+
+	/**
+	 * Creates a new {@link VarIntTranslator} that doesn't use the zig-zag
+	 * encoding.
+	 *
+	 * @param buffer
+	 *            The scratch buffer to be used by
+	 *            {@link VarIntTranslator#convert(Object)}.
+	 * @throws IllegalArgumentException
+	 *             If the given buffer is {@literal null}.
+	 */
+	public VarIntTranslator(ByteBuffer buffer) throws IllegalArgumentException {
+		this(buffer, false);
+	}
+
+	/**
+	 * Creates a new {@link VarIntTranslator}.
+	 *
+	 * @param buffer
+	 *            The scratch buffer to be used by
+	 *            {@link VarIntTranslator#convert(Object)}.
+	 * @param zigZag
+	 *            Whether to use the zig-zag encoding.
+	 * @throws IllegalArgumentException
+	 *             If the given buffer is {@literal null}.
+	 */
+	public VarIntTranslator(ByteBuffer buffer, boolean zigZag) throws IllegalArgumentException {
+		super(buffer);
+		this.zigZag = zigZag;
+	}
+
+	@Override
+	protected void encode(Integer value, ByteBuffer buffer) {
+		int intValue = value.intValue();
+		VarInts.writeInt(zigZag ? VarInts.zigZag(intValue) : intValue, buffer);
+	}
+
+	@Override
+	protected Integer decode(ByteBuffer buffer) {
+		int intValue = VarInts.readInt(buffer);
+		return Integer.valueOf(zigZag ? VarInts.unZigZag(intValue) : intValue);
+	}
+
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2016 Torsten Krause, Markenwerk GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.markenwerk.commons.translators;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+import net.markenwerk.commons.exceptions.ConversionException;
+
+/**
+ * Utility methods to encode and decode variable length integers (unsigned
+ * LEB128) and to map signed integers with a zig-zag encoding.
+ *
+ * @author Torsten Krause (tk at markenwerk dot net)
+ * @since 4.1.0
+ */
+final class VarInts {
+
+	private VarInts() {
+	}
+
+	public static int zigZag(int value) {
+		return (value << 1) ^ (value >> 31);
+	}
+
+	public static int unZigZag(int value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	public static long zigZag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	public static long unZigZag(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	public static void writeInt(int value, ByteBuffer buffer) throws BufferOverflowException {
+		while (0 != (value & ~0x7F)) {
+			buffer.put((byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		buffer.put((byte) value);
+	}
+
+	public static int readInt(ByteBuffer buffer) throws ConversionException, BufferUnderflowException {
+		int value = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			byte current = buffer.get();
+			if (28 == shift && 0 != (current & 0xF0)) {
+				throw new ConversionException("Malformed varint: value exceeds 32 bits");
+			}
+			value |= (current & 0x7F) << shift;
+			if (0 == (current & 0x80)) {
+				return value;
+			}
+		}
+		throw new ConversionException("Malformed varint: value exceeds 32 bits");
+	}
+
+	public static void writeLong(long value, ByteBuffer buffer) throws BufferOverflowException {
+		while (0 != (value & ~0x7FL)) {
+			buffer.put((byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		buffer.put((byte) value);
+	}
+
+	public static long readLong(ByteBuffer buffer) throws ConversionException, BufferUnderflowException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			byte current = buffer.get();
+			if (63 == shift && 0 != (current & 0xFE)) {
+				throw new ConversionException("Malformed varint: value exceeds 64 bits");
+			}
+			value |= (long) (current & 0x7F) << shift;
+			if (0 == (current & 0x80)) {
+				return value;
+			}
+		}
+		throw new ConversionException("Malformed varint: value exceeds 64 bits");
+	}
+
+}
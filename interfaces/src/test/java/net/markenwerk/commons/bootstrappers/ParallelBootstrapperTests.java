@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 2016 Torsten Krause, Markenwerk GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.markenwerk.commons.bootstrappers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.markenwerk.commons.exceptions.ProvisioningException;
+import net.markenwerk.commons.interfaces.Provider;
+
+@SuppressWarnings("javadoc")
+public class ParallelBootstrapperTests {
+
+	private final AtomicInteger calls = new AtomicInteger();
+
+	private ExecutorService executor;
+
+	private ParallelBootstrapper bootstrapper;
+
+	@Before
+	public void prepareBootstrapper() {
+		executor = Executors.newFixedThreadPool(4);
+		bootstrapper = new ParallelBootstrapper(executor);
+	}
+
+	@After
+	public void shutdownExecutor() {
+		executor.shutdownNow();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void add_duplicateName() {
+		bootstrapper.add("a", new CountingProvider("a"));
+		bootstrapper.add("a", new CountingProvider("a"));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void add_afterBootstrap() {
+		bootstrapper.bootstrap();
+
+		bootstrapper.add("a", new CountingProvider("a"));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void bootstrap_twice() {
+		bootstrapper.bootstrap();
+
+		bootstrapper.bootstrap();
+	}
+
+	@Test
+	public void bootstrap_missingDependency() {
+		bootstrapper.add("a", new CountingProvider("a"), "b");
+
+		try {
+			bootstrapper.bootstrap();
+			fail();
+		} catch (IllegalStateException e) {
+			assertEquals("a depends on b, which hasn't been added", e.getMessage());
+		}
+		assertEquals(0, calls.get());
+	}
+
+	@Test
+	public void bootstrap_cycle() {
+		bootstrapper.add("x", new CountingProvider("x"), "a");
+		bootstrapper.add("a", new CountingProvider("a"), "b");
+		bootstrapper.add("b", new CountingProvider("b"), "c");
+		bootstrapper.add("c", new CountingProvider("c"), "a");
+
+		try {
+			bootstrapper.bootstrap();
+			fail();
+		} catch (IllegalStateException e) {
+			assertEquals("dependencies contain a cycle: a -> b -> c -> a", e.getMessage());
+		}
+		assertEquals(0, calls.get());
+	}
+
+	@Test
+	public void bootstrap_dependencyOrder() {
+		final BootstrappedProvider<String> a = bootstrapper.add("a", new CountingProvider("a"));
+		final BootstrappedProvider<String> b = bootstrapper.add("b", new CountingProvider("b"));
+		final BootstrappedProvider<String> c = bootstrapper.add("c", new Provider<String>() {
+
+			@Override
+			public String provide() {
+				assertTrue(a.isProvided());
+				assertTrue(b.isProvided());
+				calls.incrementAndGet();
+				return a.provide() + b.provide();
+			}
+
+		}, "a", "b");
+		final BootstrappedProvider<String> d = bootstrapper.add("d", new Provider<String>() {
+
+			@Override
+			public String provide() {
+				assertTrue(c.isProvided());
+				calls.incrementAndGet();
+				return c.provide() + "d";
+			}
+
+		}, "c");
+
+		BootstrapReport report = bootstrapper.bootstrap();
+
+		assertEquals(4, calls.get());
+		assertEquals("abd", d.provide());
+		assertEquals(4, report.getNames().size());
+		assertTrue(report.getInitializationTime("d", TimeUnit.NANOSECONDS) >= 0);
+	}
+
+	@Test
+	public void bootstrap_dependencyAddedLater() {
+		bootstrapper.add("b", new CountingProvider("b"), "a");
+		BootstrappedProvider<String> a = bootstrapper.add("a", new CountingProvider("a"));
+
+		bootstrapper.bootstrap();
+
+		assertTrue(a.isProvided());
+		assertEquals(2, calls.get());
+	}
+
+	@Test
+	public void bootstrap_failure() {
+		final RuntimeException exception = new RuntimeException();
+		bootstrapper.add("a", new Provider<String>() {
+
+			@Override
+			public String provide() {
+				throw exception;
+			}
+
+		});
+		BootstrappedProvider<String> b = bootstrapper.add("b", new CountingProvider("b"), "a");
+		BootstrappedProvider<String> c = bootstrapper.add("c", new CountingProvider("c"), "b");
+
+		try {
+			bootstrapper.bootstrap();
+			fail();
+		} catch (ProvisioningException e) {
+			assertEquals("failed to initialize a", e.getMessage());
+			assertSame(exception, e.getCause());
+		}
+		assertFalse(b.isProvided());
+		assertFalse(c.isProvided());
+		assertEquals(0, calls.get());
+	}
+
+	@Test(timeout = 10000)
+	public void bootstrap_failureSkipsDeepGraph() {
+		bootstrapper.add("0", new Provider<String>() {
+
+			@Override
+			public String provide() {
+				throw new RuntimeException();
+			}
+
+		});
+		List<BootstrappedProvider<String>> providers = new ArrayList<BootstrappedProvider<String>>();
+		for (int i = 1; i < 10000; i++) {
+			providers.add(bootstrapper.add(Integer.toString(i), new CountingProvider("x"),
+					Integer.toString(i - 1)));
+		}
+
+		try {
+			bootstrapper.bootstrap();
+			fail();
+		} catch (ProvisioningException e) {
+			assertEquals("failed to initialize 0", e.getMessage());
+		}
+		for (BootstrappedProvider<String> provider : providers) {
+			assertFalse(provider.isProvided());
+		}
+		assertEquals(0, calls.get());
+	}
+
+	private final class CountingProvider implements Provider<String> {
+
+		private final String product;
+
+		public CountingProvider(String product) {
+			this.product = product;
+		}
+
+		@Override
+		public String provide() {
+			calls.incrementAndGet();
+			return product;
+		}
+
+	}
+
+}
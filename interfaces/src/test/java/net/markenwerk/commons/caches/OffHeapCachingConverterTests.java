@@ -0,0 +1,252 @@
+/*
+ * Copyright (c) 2016 Torsten Krause, Markenwerk GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.markenwerk.commons.caches;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import net.markenwerk.commons.exceptions.ProductionException;
+import net.markenwerk.commons.interfaces.Converter;
+import net.markenwerk.commons.interfaces.Producer;
+import net.markenwerk.commons.translators.Utf8StringTranslator;
+
+@SuppressWarnings("javadoc")
+public class OffHeapCachingConverterTests {
+
+	// a capacity of four entries yields a table with eight slots
+	private static final int CAPACITY = 4;
+
+	private final CountingConverter converter = new CountingConverter();
+
+	private final List<String> keys = new ArrayList<String>();
+
+	@Test(expected = IllegalArgumentException.class)
+	public void create_nullConverter() {
+		new OffHeapCachingConverter<String, String>(null, createTranslator(), createTranslator(), CAPACITY, 64);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void create_slotSizeTooSmall() {
+		new OffHeapCachingConverter<String, String>(converter, createTranslator(), createTranslator(), CAPACITY, 10);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void create_bufferTooSmall() {
+		new OffHeapCachingConverter<String, String>(converter, createTranslator(), createTranslator(), CAPACITY, 64,
+				new Producer<Integer, ByteBuffer>() {
+
+					@Override
+					public ByteBuffer produce(Integer capacity) throws ProductionException {
+						return ByteBuffer.allocate(capacity - 1);
+					}
+
+				});
+	}
+
+	@Test
+	public void convert_hit() {
+		OffHeapCachingConverter<String, String> cache = createCache(64);
+
+		assertEquals("value-key", cache.convert("key"));
+		assertEquals("value-key", cache.convert("key"));
+
+		assertEquals(1, converter.conversions);
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void convert_null() {
+		OffHeapCachingConverter<String, String> cache = createCache(64);
+
+		assertNull(cache.convert(null));
+		assertNull(cache.convert(null));
+
+		assertEquals(2, converter.conversions);
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void convert_heapBuffers() {
+		OffHeapCachingConverter<String, String> cache = new OffHeapCachingConverter<String, String>(converter,
+				createTranslator(), createTranslator(), CAPACITY, 64, new Producer<Integer, ByteBuffer>() {
+
+					@Override
+					public ByteBuffer produce(Integer capacity) throws ProductionException {
+						return ByteBuffer.allocate(capacity);
+					}
+
+				});
+
+		assertEquals("value-key", cache.convert("key"));
+		assertEquals("value-key", cache.convert("key"));
+
+		assertEquals(1, converter.conversions);
+	}
+
+	@Test
+	public void convert_wrappingProbeChain() {
+		OffHeapCachingConverter<String, String> cache = createCache(64);
+		// occupies slots 6, 7, 0 and 1
+		String[] cluster = new String[] { findKey(cache, 6), findKey(cache, 6), findKey(cache, 6), findKey(cache, 7) };
+		for (String key : cluster) {
+			cache.convert(key);
+		}
+
+		for (String key : cluster) {
+			assertEquals("value-" + key, cache.convert(key));
+		}
+
+		assertEquals(4, converter.conversions);
+	}
+
+	@Test
+	public void convert_removalFromCluster() {
+		OffHeapCachingConverter<String, String> cache = createCache(64);
+		// occupies slots 6, 7, 0 and 1
+		String[] cluster = new String[] { findKey(cache, 6), findKey(cache, 6), findKey(cache, 6), findKey(cache, 7) };
+		for (String key : cluster) {
+			cache.convert(key);
+		}
+
+		// the clock hand clears all marks and then evicts the entry in slot 0
+		cache.convert(findKey(cache, 2));
+
+		assertEquals(5, converter.conversions);
+		assertEquals(4, cache.size());
+
+		// the entry in slot 1 has been shifted back into slot 0
+		assertEquals("value-" + cluster[3], cache.convert(cluster[3]));
+		assertEquals("value-" + cluster[0], cache.convert(cluster[0]));
+		assertEquals("value-" + cluster[1], cache.convert(cluster[1]));
+		assertEquals(5, converter.conversions);
+
+		assertEquals("value-" + cluster[2], cache.convert(cluster[2]));
+		assertEquals(6, converter.conversions);
+	}
+
+	@Test
+	public void convert_clockEviction() {
+		OffHeapCachingConverter<String, String> cache = createCache(64);
+		String[] entries = new String[6];
+		for (int i = 0; i < entries.length; i++) {
+			entries[i] = findKey(cache, i);
+		}
+		for (int i = 0; i < 4; i++) {
+			cache.convert(entries[i]);
+		}
+
+		// the clock hand clears all marks and then evicts the entry in slot 0
+		cache.convert(entries[4]);
+		assertEquals(4, cache.size());
+
+		// marks the entry in slot 1 as referenced
+		cache.convert(entries[1]);
+		assertEquals(5, converter.conversions);
+
+		// the clock hand skips the entry in slot 1 and evicts the entry in slot 2
+		cache.convert(entries[5]);
+		assertEquals(4, cache.size());
+		assertEquals(6, converter.conversions);
+
+		cache.convert(entries[1]);
+		cache.convert(entries[3]);
+		cache.convert(entries[4]);
+		cache.convert(entries[5]);
+		assertEquals(6, converter.conversions);
+
+		cache.convert(entries[2]);
+		assertEquals(7, converter.conversions);
+		assertEquals(4, cache.size());
+	}
+
+	@Test
+	public void convert_entryTooLarge() {
+		OffHeapCachingConverter<String, String> cache = createCache(32);
+
+		// ten bytes header, two bytes key and eight bytes value
+		cache.convert("k");
+		cache.convert("k");
+		assertEquals(1, converter.conversions);
+
+		// ten bytes header, eleven bytes key and seventeen bytes value
+		cache.convert("kkkkkkkkkk");
+		cache.convert("kkkkkkkkkk");
+		assertEquals(3, converter.conversions);
+
+		// ten bytes header and thirty-one bytes key
+		cache.convert("kkkkkkkkkkkkkkkkkkkkkkkkkkkkkk");
+		cache.convert("kkkkkkkkkkkkkkkkkkkkkkkkkkkkkk");
+		assertEquals(5, converter.conversions);
+
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void clear() {
+		OffHeapCachingConverter<String, String> cache = createCache(64);
+		cache.convert("key");
+
+		cache.clear();
+
+		assertEquals(0, cache.size());
+		cache.convert("key");
+		assertEquals(2, converter.conversions);
+	}
+
+	private OffHeapCachingConverter<String, String> createCache(int slotSize) {
+		return new OffHeapCachingConverter<String, String>(converter, createTranslator(), createTranslator(),
+				CAPACITY, slotSize);
+	}
+
+	private String findKey(OffHeapCachingConverter<String, String> cache, int index) {
+		for (int i = 0;; i++) {
+			String key = "key" + i;
+			if (index == cache.getIndex(key) && !keys.contains(key)) {
+				keys.add(key);
+				return key;
+			}
+		}
+	}
+
+	private static Utf8StringTranslator createTranslator() {
+		return new Utf8StringTranslator(ByteBuffer.allocate(64));
+	}
+
+	private static final class CountingConverter implements Converter<String, String> {
+
+		private int conversions;
+
+		@Override
+		public String convert(String from) {
+			conversions++;
+			return null == from ? null : "value-" + from;
+		}
+
+	}
+
+}
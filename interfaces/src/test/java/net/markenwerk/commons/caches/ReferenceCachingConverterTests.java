@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2016 Torsten Krause, Markenwerk GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.markenwerk.commons.caches;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.lang.ref.Reference;
+
+import org.junit.Test;
+
+import net.markenwerk.commons.exceptions.ConversionException;
+import net.markenwerk.commons.interfaces.Converter;
+
+@SuppressWarnings("javadoc")
+public class ReferenceCachingConverterTests {
+
+	private final CountingConverter converter = new CountingConverter();
+
+	private final ReferenceCachingConverter<String, String> cache = new ReferenceCachingConverter<String, String>(
+			converter, ReferenceStrength.SOFT);
+
+	@Test(expected = IllegalArgumentException.class)
+	public void create_nullConverter() {
+		new ReferenceCachingConverter<String, String>(null, ReferenceStrength.SOFT);
+	}
+
+	@Test
+	public void convert_cached() {
+		assertEquals("value-key", cache.convert("key"));
+		assertEquals("value-key", cache.convert("key"));
+
+		assertEquals(1, converter.conversions);
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void convert_null() {
+		assertNull(cache.convert(null));
+		assertNull(cache.convert(null));
+
+		assertEquals(2, converter.conversions);
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void convert_clearedReference() {
+		cache.convert("key");
+
+		// simulates the garbage collector, without enqueuing the reference
+		cache.getReference("key").clear();
+
+		assertEquals("value-key", cache.convert("key"));
+		assertEquals(2, converter.conversions);
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void size_drainsQueue() {
+		cache.convert("first");
+		cache.convert("second");
+
+		// simulates the garbage collector
+		Reference<String> reference = cache.getReference("first");
+		reference.clear();
+		reference.enqueue();
+
+		assertEquals(1, cache.size());
+		assertNull(cache.getReference("first"));
+		assertEquals("value-second", cache.getReference("second").get());
+	}
+
+	@Test
+	public void convert_drainsQueue() {
+		cache.convert("key");
+		Reference<String> reference = cache.getReference("key");
+		reference.clear();
+		reference.enqueue();
+
+		assertEquals("value-key", cache.convert("key"));
+
+		assertEquals(2, converter.conversions);
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void convert_staleReferenceOfReplacedEntry() {
+		cache.convert("key");
+		Reference<String> reference = cache.getReference("key");
+		reference.clear();
+		cache.convert("key");
+
+		// the entry has already been replaced and must not be removed
+		reference.enqueue();
+
+		assertEquals(1, cache.size());
+		cache.convert("key");
+		assertEquals(2, converter.conversions);
+	}
+
+	@Test
+	public void clear() {
+		cache.convert("key");
+
+		cache.clear();
+
+		assertEquals(0, cache.size());
+		cache.convert("key");
+		assertEquals(2, converter.conversions);
+	}
+
+	private static final class CountingConverter implements Converter<String, String> {
+
+		private int conversions;
+
+		@Override
+		public String convert(String from) throws ConversionException {
+			conversions++;
+			return null == from ? null : "value-" + from;
+		}
+
+	}
+
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2016 Torsten Krause, Markenwerk GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.markenwerk.commons.caches;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import net.markenwerk.commons.exceptions.ProvisioningException;
+import net.markenwerk.commons.interfaces.Provider;
+
+@SuppressWarnings("javadoc")
+public class ReferenceCachingProviderTests {
+
+	private final CountingProvider provider = new CountingProvider();
+
+	@Test(expected = IllegalArgumentException.class)
+	public void create_nullProvider() {
+		new ReferenceCachingProvider<Object>(null, ReferenceStrength.SOFT);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void create_nullStrength() {
+		new ReferenceCachingProvider<Object>(provider, null);
+	}
+
+	@Test
+	public void provide_cached() {
+		ReferenceCachingProvider<Object> cachingProvider = new ReferenceCachingProvider<Object>(provider,
+				ReferenceStrength.SOFT);
+
+		Object product = cachingProvider.provide();
+
+		assertSame(product, cachingProvider.provide());
+		assertEquals(1, provider.provisions);
+	}
+
+	@Test
+	public void provide_clearedReference() {
+		ReferenceCachingProvider<Object> cachingProvider = new ReferenceCachingProvider<Object>(provider,
+				ReferenceStrength.WEAK);
+		cachingProvider.provide();
+
+		// simulates the garbage collector
+		cachingProvider.getReference().clear();
+
+		cachingProvider.provide();
+		assertEquals(2, provider.provisions);
+		cachingProvider.provide();
+		assertEquals(2, provider.provisions);
+	}
+
+	@Test
+	public void provide_null() {
+		provider.product = null;
+		ReferenceCachingProvider<Object> cachingProvider = new ReferenceCachingProvider<Object>(provider,
+				ReferenceStrength.SOFT);
+
+		assertNull(cachingProvider.provide());
+		assertNull(cachingProvider.provide());
+
+		assertEquals(2, provider.provisions);
+		assertNull(cachingProvider.getReference());
+	}
+
+	@Test
+	public void clear() {
+		ReferenceCachingProvider<Object> cachingProvider = new ReferenceCachingProvider<Object>(provider,
+				ReferenceStrength.SOFT);
+		cachingProvider.provide();
+
+		cachingProvider.clear();
+
+		cachingProvider.provide();
+		assertEquals(2, provider.provisions);
+	}
+
+	private static final class CountingProvider implements Provider<Object> {
+
+		private Object product = new Object();
+
+		private int provisions;
+
+		@Override
+		public Object provide() throws ProvisioningException {
+			provisions++;
+			return product;
+		}
+
+	}
+
+}
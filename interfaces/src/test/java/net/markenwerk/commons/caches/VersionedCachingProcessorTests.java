@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2016 Torsten Krause, Markenwerk GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.markenwerk.commons.caches;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import net.markenwerk.commons.exceptions.ConversionException;
+import net.markenwerk.commons.exceptions.ProcessingException;
+import net.markenwerk.commons.interfaces.Converter;
+import net.markenwerk.commons.interfaces.Processor;
+
+@SuppressWarnings("javadoc")
+public class VersionedCachingProcessorTests {
+
+	private static final Converter<Record, String> KEY_CONVERTER = new Converter<Record, String>() {
+
+		@Override
+		public String convert(Record from) throws ConversionException {
+			return from.key;
+		}
+
+	};
+
+	private static final Converter<Record, Integer> VERSION_CONVERTER = new Converter<Record, Integer>() {
+
+		@Override
+		public Integer convert(Record from) throws ConversionException {
+			return from.version;
+		}
+
+	};
+
+	private final CountingProcessor processor = new CountingProcessor();
+
+	@Test(expected = IllegalArgumentException.class)
+	public void create_nullProcessor() {
+		new VersionedCachingProcessor<Record>(null, KEY_CONVERTER, VERSION_CONVERTER, 4);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void create_nonPositiveCapacity() {
+		new VersionedCachingProcessor<Record>(processor, KEY_CONVERTER, VERSION_CONVERTER, 0);
+	}
+
+	@Test
+	public void process_sameVersion() {
+		VersionedCachingProcessor<Record> cache = createCache(4);
+
+		Record result = cache.process(new Record("key", 1));
+
+		assertSame(result, cache.process(new Record("key", 1)));
+		assertEquals(1, processor.calls.get());
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+	}
+
+	@Test
+	public void process_newVersion() {
+		VersionedCachingProcessor<Record> cache = createCache(4);
+		cache.process(new Record("key", 1));
+
+		Record result = cache.process(new Record("key", 2));
+
+		assertEquals(2, result.version);
+		assertEquals(2, processor.calls.get());
+		assertEquals(1, cache.size());
+
+		// the result for the old version has been replaced
+		cache.process(new Record("key", 1));
+		assertEquals(3, processor.calls.get());
+	}
+
+	@Test
+	public void process_fingerprint() {
+		VersionedCachingProcessor<Record> cache = new VersionedCachingProcessor<Record>(processor, KEY_CONVERTER, 4);
+
+		cache.process(new Record("key", 1));
+		cache.process(new Record("key", 2));
+
+		assertEquals(1, processor.calls.get());
+	}
+
+	@Test
+	public void process_nullKey() {
+		VersionedCachingProcessor<Record> cache = createCache(4);
+
+		cache.process(new Record(null, 1));
+		cache.process(new Record(null, 1));
+
+		assertEquals(2, processor.calls.get());
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void process_leastRecentlyUsedEviction() {
+		VersionedCachingProcessor<Record> cache = createCache(2);
+		cache.process(new Record("first", 1));
+		cache.process(new Record("second", 1));
+
+		// marks the first result as recently used
+		cache.process(new Record("first", 1));
+		cache.process(new Record("third", 1));
+
+		assertEquals(2, cache.size());
+		assertEquals(3, processor.calls.get());
+
+		cache.process(new Record("first", 1));
+		cache.process(new Record("third", 1));
+		assertEquals(3, processor.calls.get());
+
+		cache.process(new Record("second", 1));
+		assertEquals(4, processor.calls.get());
+	}
+
+	@Test
+	public void invalidate() {
+		VersionedCachingProcessor<Record> cache = createCache(4);
+		cache.process(new Record("key", 1));
+
+		cache.invalidate("key");
+
+		assertEquals(0, cache.size());
+		cache.process(new Record("key", 1));
+		assertEquals(2, processor.calls.get());
+	}
+
+	@Test(timeout = 10000)
+	public void process_concurrentMiss() throws InterruptedException {
+		final CountDownLatch processing = new CountDownLatch(2);
+		final VersionedCachingProcessor<Record> cache = new VersionedCachingProcessor<Record>(
+				new Processor<Record>() {
+
+					@Override
+					public Record process(Record value) throws ProcessingException {
+						processor.process(value);
+						processing.countDown();
+						try {
+							// both threads have missed before either remembers a result
+							assertTrue(processing.await(5, TimeUnit.SECONDS));
+						} catch (InterruptedException e) {
+							throw new ProcessingException(e);
+						}
+						return value;
+					}
+
+				}, KEY_CONVERTER, VERSION_CONVERTER, 4);
+
+		Thread thread = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				cache.process(new Record("key", 1));
+			}
+
+		});
+		thread.start();
+		cache.process(new Record("key", 1));
+		thread.join();
+
+		assertEquals(2, processor.calls.get());
+		assertEquals(2, cache.getMissCount());
+		assertEquals(1, cache.size());
+
+		cache.process(new Record("key", 1));
+		assertEquals(2, processor.calls.get());
+	}
+
+	private VersionedCachingProcessor<Record> createCache(int capacity) {
+		return new VersionedCachingProcessor<Record>(processor, KEY_CONVERTER, VERSION_CONVERTER, capacity);
+	}
+
+	private static final class Record {
+
+		private final String key;
+
+		private final int version;
+
+		public Record(String key, int version) {
+			this.key = key;
+			this.version = version;
+		}
+
+	}
+
+	private static final class CountingProcessor implements Processor<Record> {
+
+		private final AtomicInteger calls = new AtomicInteger();
+
+		@Override
+		public Record process(Record value) {
+			calls.incrementAndGet();
+			return new Record(value.key, value.version);
+		}
+
+	}
+
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2016 Torsten Krause, Markenwerk GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.markenwerk.commons.callbacks;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import net.markenwerk.commons.interfaces.Callback;
+import net.markenwerk.commons.interfaces.Predicate;
+
+@SuppressWarnings("javadoc")
+public class AggregatingCallbackTests {
+
+	private static final Predicate<Integer> POSITIVE = new Predicate<Integer>() {
+
+		@Override
+		public boolean test(Integer subject) {
+			return subject > 0;
+		}
+
+	};
+
+	private final AtomicReference<List<Integer>> aggregatedResults = new AtomicReference<List<Integer>>();
+
+	private final AtomicInteger forwards = new AtomicInteger();
+
+	private final Callback<AggregatingCallback<Object, Integer>, List<Integer>> callback =
+			new Callback<AggregatingCallback<Object, Integer>, List<Integer>>() {
+
+			@Override
+			public void onResult(AggregatingCallback<Object, Integer> callee, List<Integer> result) {
+				aggregatedResults.set(result);
+				forwards.incrementAndGet();
+			}
+
+		};
+
+	@Test
+	public void onResult_all() {
+		AggregatingCallback<Object, Integer> aggregatingCallback = new AggregatingCallback<Object, Integer>(3,
+				callback);
+
+		aggregatingCallback.onResult(this, 1);
+		aggregatingCallback.onResult(this, null);
+		assertFalse(aggregatingCallback.isDone());
+		aggregatingCallback.onResult(this, 3);
+
+		assertTrue(aggregatingCallback.isDone());
+		assertTrue(aggregatingCallback.isSuccessful());
+		assertEquals(Arrays.asList(1, null, 3), aggregatedResults.get());
+	}
+
+	@Test
+	public void onResult_firstSuccess() {
+		AggregatingCallback<Object, Integer> aggregatingCallback = new AggregatingCallback<Object, Integer>(3, 1,
+				POSITIVE, callback);
+
+		aggregatingCallback.onResult(this, -1);
+		aggregatingCallback.onResult(this, 2);
+		aggregatingCallback.onResult(this, 3);
+
+		assertTrue(aggregatingCallback.isSuccessful());
+		assertEquals(Arrays.asList(2), aggregatedResults.get());
+		assertEquals(1, forwards.get());
+	}
+
+	@Test
+	public void onResult_quorumUnreachable() {
+		AggregatingCallback<Object, Integer> aggregatingCallback = new AggregatingCallback<Object, Integer>(4, 3,
+				POSITIVE, callback);
+
+		aggregatingCallback.onResult(this, 1);
+		aggregatingCallback.onResult(this, -2);
+		assertNull(aggregatedResults.get());
+		aggregatingCallback.onResult(this, -3);
+
+		assertTrue(aggregatingCallback.isDone());
+		assertFalse(aggregatingCallback.isSuccessful());
+		assertEquals(Arrays.asList(1), aggregatedResults.get());
+	}
+
+	@Test
+	public void onResult_concurrently() throws InterruptedException {
+		for (int round = 0; round < 100; round++) {
+			final int callees = 64;
+			final AggregatingCallback<Object, Integer> aggregatingCallback = new AggregatingCallback<Object, Integer>(
+					callees, callees, POSITIVE, callback);
+			runConcurrently(aggregatingCallback, callees, 0);
+
+			assertTrue(aggregatingCallback.isSuccessful());
+			assertEquals(callees, new HashSet<Integer>(aggregatedResults.get()).size());
+		}
+		assertEquals(100, forwards.get());
+	}
+
+	@Test
+	public void onResult_concurrentlyUnreachable() throws InterruptedException {
+		for (int round = 0; round < 100; round++) {
+			final int callees = 64;
+			final AtomicReference<Boolean> successfulWhenForwarded = new AtomicReference<Boolean>();
+			final AggregatingCallback<Object, Integer> aggregatingCallback = new AggregatingCallback<Object, Integer>(
+					callees, callees / 2, POSITIVE, new Callback<AggregatingCallback<Object, Integer>, List<Integer>>() {
+
+						@Override
+						public void onResult(AggregatingCallback<Object, Integer> callee, List<Integer> result) {
+							successfulWhenForwarded.set(callee.isDone() && callee.isSuccessful());
+							aggregatedResults.set(result);
+						}
+
+					});
+			runConcurrently(aggregatingCallback, callees, callees / 2 + 1);
+
+			assertFalse(aggregatingCallback.isSuccessful());
+			assertEquals(Boolean.FALSE, successfulWhenForwarded.get());
+			for (Integer result : aggregatedResults.get()) {
+				assertNotNull(result);
+			}
+		}
+	}
+
+	private static void runConcurrently(final AggregatingCallback<Object, Integer> aggregatingCallback, int callees,
+			final int failures) throws InterruptedException {
+		final CountDownLatch start = new CountDownLatch(1);
+		Thread[] threads = new Thread[callees];
+		for (int i = 0; i < callees; i++) {
+			final int result = i < failures ? -(i + 1) : i + 1;
+			threads[i] = new Thread() {
+
+				@Override
+				public void run() {
+					try {
+						start.await();
+					} catch (InterruptedException e) {
+						return;
+					}
+					aggregatingCallback.onResult(this, result);
+				}
+
+			};
+			threads[i].start();
+		}
+		start.countDown();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+	}
+
+}
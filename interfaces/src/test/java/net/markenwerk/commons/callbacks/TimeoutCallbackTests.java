@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2016 Torsten Krause, Markenwerk GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.markenwerk.commons.callbacks;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.markenwerk.commons.interfaces.Callback;
+import net.markenwerk.commons.timers.HashedWheelTimer;
+
+@SuppressWarnings("javadoc")
+public class TimeoutCallbackTests {
+
+	private HashedWheelTimer timer;
+
+	@Before
+	public void prepareTimer() {
+		timer = new HashedWheelTimer(1, TimeUnit.MILLISECONDS, 64);
+	}
+
+	@After
+	public void stopTimer() {
+		timer.stop();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void create_nullCallback() {
+		new TimeoutCallback<String, String>(timer, 1, TimeUnit.SECONDS, null, "timeout");
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void create_stoppedTimer() {
+		timer.stop();
+
+		new TimeoutCallback<String, String>(timer, 1, TimeUnit.SECONDS, new RecordingCallback(), "timeout");
+	}
+
+	@Test
+	public void onResult_beforeDeadline() throws InterruptedException {
+		RecordingCallback callback = new RecordingCallback();
+		TimeoutCallback<String, String> timeoutCallback = new TimeoutCallback<String, String>(timer, 20,
+				TimeUnit.MILLISECONDS, callback, "timeout");
+
+		timeoutCallback.onResult("callee", "result");
+		timeoutCallback.onResult("callee", "other");
+		Thread.sleep(50);
+
+		assertTrue(timeoutCallback.isCompleted());
+		assertFalse(timeoutCallback.isTimedOut());
+		assertEquals(1, callback.forwards.get());
+		assertEquals("callee", callback.callee);
+		assertEquals("result", callback.result);
+	}
+
+	@Test
+	public void onResult_afterDeadline() throws InterruptedException {
+		RecordingCallback callback = new RecordingCallback();
+		TimeoutCallback<String, String> timeoutCallback = new TimeoutCallback<String, String>(timer, 10,
+				TimeUnit.MILLISECONDS, callback, "timeout");
+
+		assertTrue(callback.forwarded.await(1, TimeUnit.SECONDS));
+		timeoutCallback.onResult("callee", "result");
+
+		assertTrue(timeoutCallback.isTimedOut());
+		assertFalse(timeoutCallback.isCompleted());
+		assertEquals(1, callback.forwards.get());
+		assertNull(callback.callee);
+		assertEquals("timeout", callback.result);
+	}
+
+	@Test
+	public void onResult_racingDeadline() throws InterruptedException {
+		List<RecordingCallback> callbacks = new ArrayList<RecordingCallback>();
+		List<TimeoutCallback<String, String>> timeoutCallbacks = new ArrayList<TimeoutCallback<String, String>>();
+		for (int i = 0; i < 1000; i++) {
+			RecordingCallback callback = new RecordingCallback();
+			callbacks.add(callback);
+			timeoutCallbacks.add(new TimeoutCallback<String, String>(timer, 5, TimeUnit.MILLISECONDS, callback,
+					"timeout"));
+		}
+
+		long start = System.nanoTime();
+		while (System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(5)) {
+			Thread.yield();
+		}
+		for (TimeoutCallback<String, String> timeoutCallback : timeoutCallbacks) {
+			timeoutCallback.onResult("callee", "result");
+		}
+		Thread.sleep(50);
+
+		for (int i = 0; i < 1000; i++) {
+			RecordingCallback callback = callbacks.get(i);
+			TimeoutCallback<String, String> timeoutCallback = timeoutCallbacks.get(i);
+			assertEquals(1, callback.forwards.get());
+			assertTrue(timeoutCallback.isCompleted() != timeoutCallback.isTimedOut());
+			assertEquals(timeoutCallback.isCompleted() ? "result" : "timeout", callback.result);
+		}
+	}
+
+	@Test
+	public void onResult_stoppedTimer() throws InterruptedException {
+		RecordingCallback callback = new RecordingCallback();
+		TimeoutCallback<String, String> timeoutCallback = new TimeoutCallback<String, String>(timer, 10,
+				TimeUnit.MILLISECONDS, callback, "timeout");
+
+		timer.stop();
+		Thread.sleep(50);
+
+		assertFalse(timeoutCallback.isTimedOut());
+		assertEquals(0, callback.forwards.get());
+
+		timeoutCallback.onResult("callee", "result");
+
+		assertTrue(timeoutCallback.isCompleted());
+		assertEquals(1, callback.forwards.get());
+	}
+
+	private static final class RecordingCallback implements Callback<String, String> {
+
+		private final AtomicInteger forwards = new AtomicInteger();
+
+		private final CountDownLatch forwarded = new CountDownLatch(1);
+
+		private volatile String callee;
+
+		private volatile String result;
+
+		@Override
+		public void onResult(String callee, String result) {
+			this.callee = callee;
+			this.result = result;
+			forwards.incrementAndGet();
+			forwarded.countDown();
+		}
+
+	}
+
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2016 Torsten Krause, Markenwerk GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.markenwerk.commons.harnesses;
+
+import java.lang.management.ManagementFactory;
+
+import com.sun.management.ThreadMXBean;
+
+/**
+ * Reads the number of bytes that have been allocated by the current thread,
+ * if the running JVM supports it.
+ *
+ * @author Torsten Krause (tk at markenwerk dot net)
+ * @since 4.1.0
+ */
+final class AllocationCounter {
+
+	private static final ThreadMXBean BEAN = createBean();
+
+	private AllocationCounter() {
+	}
+
+	private static ThreadMXBean createBean() {
+		try {
+			Object bean = ManagementFactory.getThreadMXBean();
+			if (bean instanceof ThreadMXBean) {
+				ThreadMXBean threadBean = (ThreadMXBean) bean;
+				if (threadBean.isThreadAllocatedMemorySupported()) {
+					if (!threadBean.isThreadAllocatedMemoryEnabled()) {
+						threadBean.setThreadAllocatedMemoryEnabled(true);
+					}
+					return threadBean;
+				}
+			}
+		} catch (LinkageError e) {
+		} catch (UnsupportedOperationException e) {
+		} catch (SecurityException e) {
+		}
+		return null;
+	}
+
+	public static boolean isSupported() {
+		return null != BEAN;
+	}
+
+	public static long getAllocatedBytes() {
+		return BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+}
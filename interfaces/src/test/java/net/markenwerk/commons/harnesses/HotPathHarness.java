@@ -0,0 +1,249 @@
+/*
+ * Copyright (c) 2016 Torsten Krause, Markenwerk GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.markenwerk.commons.harnesses;
+
+import java.util.Arrays;
+
+import net.markenwerk.commons.interfaces.Converter;
+import net.markenwerk.commons.interfaces.Handler;
+import net.markenwerk.commons.interfaces.Predicate;
+import net.markenwerk.commons.interfaces.Provider;
+
+/**
+ * A {@link HotPathHarness} repeatedly calls a {@link Converter}, a
+ * {@link Handler}, a {@link Provider} or a {@link Predicate} and yields a
+ * {@link HotPathMeasurement} of the memory that has been allocated and of the
+ * latencies of the calls, such that allocation-free or bounded-allocation
+ * guarantees and latency percentiles can be asserted in regular tests.
+ *
+ * <pre>
+ * HotPathHarness harness = new HotPathHarness(100000, 100000);
+ * harness.measureConverter(converter, value).assertAllocationFree();
+ * </pre>
+ *
+ * <p>
+ * The measured object is first called a number of times without being
+ * measured, by the same loop that later performs the measured calls, to let
+ * the JIT compiler optimize both. Afterwards, the number of bytes allocated by
+ * the current thread is read from the per-thread allocation counter of the
+ * JVM, before and after the measured calls, and the latency of every measured
+ * call is recorded into a preallocated array. The harness itself doesn't
+ * allocate any memory while calls are measured.
+ *
+ * <p>
+ * Per-thread allocation counters are provided by the
+ * {@literal com.sun.management.ThreadMXBean} of HotSpot based JVMs. If the
+ * running JVM doesn't provide them, only latencies are measured.
+ *
+ * @author Torsten Krause (tk at markenwerk dot net)
+ * @since 4.1.0
+ */
+public final class HotPathHarness {
+
+	private static final int CALIBRATION_ROUNDS = 16;
+
+	private final int warmupIterations;
+
+	private final int iterations;
+
+	/**
+	 * Creates a new {@link HotPathHarness}.
+	 *
+	 * @param warmupIterations
+	 *            The number of calls to perform before the measured calls.
+	 * @param iterations
+	 *            The number of measured calls.
+	 * @throws IllegalArgumentException
+	 *             If the given number of warmup iterations is negative or if
+	 *             the given number of iterations is not positive.
+	 */
+	public HotPathHarness(int warmupIterations, int iterations) throws IllegalArgumentException {
+		if (warmupIterations < 0) {
+			throw new IllegalArgumentException("warmupIterations is negative");
+		}
+		if (iterations <= 0) {
+			throw new IllegalArgumentException("iterations is not positive");
+		}
+		this.warmupIterations = warmupIterations;
+		this.iterations = iterations;
+	}
+
+	/**
+	 * Returns whether the running JVM supports per-thread allocation counters.
+	 *
+	 * @return Whether allocated bytes can be measured.
+	 */
+	public static boolean isAllocationMeasurementSupported() {
+		return AllocationCounter.isSupported();
+	}
+
+	/**
+	 * Measures the given {@link Converter}.
+	 *
+	 * @param <From>
+	 *            The type of the value to be converted.
+	 * @param converter
+	 *            The {@link Converter} to be measured.
+	 * @param from
+	 *            The value to be converted in every call.
+	 * @return The {@link HotPathMeasurement}.
+	 * @throws IllegalArgumentException
+	 *             If the given {@link Converter} is {@literal null}.
+	 */
+	public <From> HotPathMeasurement measureConverter(final Converter<? super From, ?> converter, final From from)
+			throws IllegalArgumentException {
+		if (null == converter) {
+			throw new IllegalArgumentException("converter is null");
+		}
+		return measureCalls(converter, new Call() {
+
+			@Override
+			public void call() {
+				sink = converter.convert(from);
+			}
+
+		});
+	}
+
+	/**
+	 * Measures the given {@link Handler}.
+	 *
+	 * @param <Value>
+	 *            The type of the value to be handled.
+	 * @param handler
+	 *            The {@link Handler} to be measured.
+	 * @param value
+	 *            The value to be handled in every call.
+	 * @return The {@link HotPathMeasurement}.
+	 * @throws IllegalArgumentException
+	 *             If the given {@link Handler} is {@literal null}.
+	 */
+	public <Value> HotPathMeasurement measureHandler(final Handler<? super Value> handler, final Value value)
+			throws IllegalArgumentException {
+		if (null == handler) {
+			throw new IllegalArgumentException("handler is null");
+		}
+		return measureCalls(handler, new Call() {
+
+			@Override
+			public void call() {
+				handler.handle(value);
+			}
+
+		});
+	}
+
+	/**
+	 * Measures the given {@link Provider}.
+	 *
+	 * @param provider
+	 *            The {@link Provider} to be measured.
+	 * @return The {@link HotPathMeasurement}.
+	 * @throws IllegalArgumentException
+	 *             If the given {@link Provider} is {@literal null}.
+	 */
+	public HotPathMeasurement measureProvider(final Provider<?> provider) throws IllegalArgumentException {
+		if (null == provider) {
+			throw new IllegalArgumentException("provider is null");
+		}
+		return measureCalls(provider, new Call() {
+
+			@Override
+			public void call() {
+				sink = provider.provide();
+			}
+
+		});
+	}
+
+	/**
+	 * Measures the given {@link Predicate}.
+	 *
+	 * @param <Subject>
+	 *            The type of the subject to be tested.
+	 * @param predicate
+	 *            The {@link Predicate} to be measured.
+	 * @param subject
+	 *            The subject to be tested in every call.
+	 * @return The {@link HotPathMeasurement}.
+	 * @throws IllegalArgumentException
+	 *             If the given {@link Predicate} is {@literal null}.
+	 */
+	public <Subject> HotPathMeasurement measurePredicate(final Predicate<? super Subject> predicate,
+			final Subject subject) throws IllegalArgumentException {
+		if (null == predicate) {
+			throw new IllegalArgumentException("predicate is null");
+		}
+		return measureCalls(predicate, new Call() {
+
+			@Override
+			public void call() {
+				flag ^= predicate.test(subject);
+			}
+
+		});
+	}
+
+	private HotPathMeasurement measureCalls(Object measured, Call call) {
+		long[] latencies = new long[iterations];
+		for (int remaining = warmupIterations; remaining > 0; remaining -= iterations) {
+			run(call, latencies, Math.min(remaining, iterations));
+		}
+		boolean allocationMeasured = AllocationCounter.isSupported();
+		long overhead = allocationMeasured ? getCounterOverhead() : 0;
+		long allocatedBefore = allocationMeasured ? AllocationCounter.getAllocatedBytes() : 0;
+		run(call, latencies, iterations);
+		long allocatedAfter = allocationMeasured ? AllocationCounter.getAllocatedBytes() : 0;
+		Arrays.sort(latencies);
+		long allocatedBytes = allocationMeasured ? Math.max(0, allocatedAfter - allocatedBefore - overhead) : -1;
+		return new HotPathMeasurement(measured.getClass().getName(), allocatedBytes, latencies);
+	}
+
+	private static void run(Call call, long[] latencies, int iterations) {
+		for (int i = 0; i < iterations; i++) {
+			long start = System.nanoTime();
+			call.call();
+			latencies[i] = System.nanoTime() - start;
+		}
+	}
+
+	private static long getCounterOverhead() {
+		long overhead = Long.MAX_VALUE;
+		for (int i = 0; i < CALIBRATION_ROUNDS; i++) {
+			long before = AllocationCounter.getAllocatedBytes();
+			long after = AllocationCounter.getAllocatedBytes();
+			overhead = Math.min(overhead, after - before);
+		}
+		return overhead;
+	}
+
+	private static abstract class Call {
+
+		protected Object sink;
+
+		protected boolean flag;
+
+		public abstract void call();
+
+	}
+
+}
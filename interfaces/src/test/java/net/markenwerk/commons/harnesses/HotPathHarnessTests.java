@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2016 Torsten Krause, Markenwerk GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.markenwerk.commons.harnesses;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.markenwerk.commons.interfaces.Converter;
+import net.markenwerk.commons.interfaces.Handler;
+import net.markenwerk.commons.interfaces.Predicate;
+import net.markenwerk.commons.interfaces.Provider;
+
+@SuppressWarnings("javadoc")
+public class HotPathHarnessTests {
+
+	private HotPathHarness harness;
+
+	@Before
+	public void prepareHarness() {
+		harness = new HotPathHarness(20000, 10000);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void create_negativeWarmupIterations() {
+		new HotPathHarness(-1, 1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void create_zeroIterations() {
+		new HotPathHarness(0, 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void measureConverter_nullConverter() {
+		harness.measureConverter(null, "value");
+	}
+
+	@Test
+	public void measureConverter_allocating() {
+		Assume.assumeTrue(HotPathHarness.isAllocationMeasurementSupported());
+
+		HotPathMeasurement measurement = harness.measureConverter(new Converter<Integer, long[]>() {
+
+			@Override
+			public long[] convert(Integer from) {
+				return new long[from];
+			}
+
+		}, 16);
+
+		assertEquals(10000, measurement.getIterations());
+		assertTrue(measurement.getAllocatedBytesPerCall() >= 16 * 8);
+		try {
+			measurement.assertAllocationFree();
+			fail();
+		} catch (AssertionError e) {
+		}
+	}
+
+	@Test
+	public void measurePredicate_allocationFree() {
+		Assume.assumeTrue(HotPathHarness.isAllocationMeasurementSupported());
+
+		HotPathMeasurement measurement = harness.measurePredicate(new Predicate<String>() {
+
+			@Override
+			public boolean test(String subject) {
+				return subject.length() > 2;
+			}
+
+		}, "subject");
+
+		measurement.assertAllocationFree();
+	}
+
+	@Test
+	public void measureHandler_allocationFree() {
+		Assume.assumeTrue(HotPathHarness.isAllocationMeasurementSupported());
+
+		final long[] sum = new long[1];
+		HotPathMeasurement measurement = harness.measureHandler(new Handler<String>() {
+
+			@Override
+			public void handle(String value) {
+				sum[0] += value.length();
+			}
+
+		}, "value");
+
+		measurement.assertAllocationFree();
+		assertEquals(30000 * 5, sum[0]);
+	}
+
+	@Test
+	public void measureProvider_boundedAllocation() {
+		Assume.assumeTrue(HotPathHarness.isAllocationMeasurementSupported());
+
+		HotPathMeasurement measurement = harness.measureProvider(new Provider<Object>() {
+
+			@Override
+			public Object provide() {
+				return new Object();
+			}
+
+		});
+
+		measurement.assertAllocatedBytesPerCall(64);
+	}
+
+	@Test
+	public void getLatency_ordered() {
+		HotPathMeasurement measurement = harness.measurePredicate(new Predicate<Object>() {
+
+			@Override
+			public boolean test(Object subject) {
+				return null != subject;
+			}
+
+		}, this);
+
+		assertTrue(measurement.getLatency(50) <= measurement.getLatency(99));
+		assertTrue(measurement.getLatency(99) <= measurement.getLatency(100));
+		measurement.assertLatency(100, measurement.getLatency(100), TimeUnit.NANOSECONDS);
+	}
+
+	@Test(expected = AssertionError.class)
+	public void assertLatency_exceeded() {
+		HotPathMeasurement measurement = new HotPathHarness(0, 10).measureProvider(new Provider<Object>() {
+
+			@Override
+			public Object provide() {
+				try {
+					Thread.sleep(1);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return null;
+			}
+
+		});
+
+		measurement.assertLatency(50, 100, TimeUnit.MICROSECONDS);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void getLatency_invalidPercentile() {
+		harness.measureProvider(new Provider<Object>() {
+
+			@Override
+			public Object provide() {
+				return null;
+			}
+
+		}).getLatency(0);
+	}
+
+}
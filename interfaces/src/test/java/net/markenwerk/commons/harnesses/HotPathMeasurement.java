@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2016 Torsten Krause, Markenwerk GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.markenwerk.commons.harnesses;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link HotPathMeasurement} is the result of a measurement performed by a
+ * {@link HotPathHarness}. It provides the number of bytes that have been
+ * allocated and the distribution of the latencies of the measured calls, as
+ * well as assertions on both, that throw an {@link AssertionError} and can
+ * therefore be used with any test framework.
+ *
+ * @author Torsten Krause (tk at markenwerk dot net)
+ * @since 4.1.0
+ */
+public final class HotPathMeasurement {
+
+	private final String description;
+
+	private final long allocatedBytes;
+
+	private final long[] sortedLatencies;
+
+	HotPathMeasurement(String description, long allocatedBytes, long[] sortedLatencies) {
+		this.description = description;
+		this.allocatedBytes = allocatedBytes;
+		this.sortedLatencies = sortedLatencies;
+	}
+
+	/**
+	 * Returns the number of measured calls.
+	 *
+	 * @return The number of measured calls.
+	 */
+	public int getIterations() {
+		return sortedLatencies.length;
+	}
+
+	/**
+	 * Returns whether the number of allocated bytes has been measured, i.e.
+	 * whether the running JVM supports per-thread allocation counters.
+	 *
+	 * @return Whether the number of allocated bytes has been measured.
+	 */
+	public boolean isAllocationMeasured() {
+		return allocatedBytes >= 0;
+	}
+
+	/**
+	 * Returns the number of bytes that have been allocated by all measured
+	 * calls.
+	 *
+	 * @return The number of allocated bytes or {@literal -1}, if the number of
+	 *         allocated bytes hasn't been measured.
+	 */
+	public long getAllocatedBytes() {
+		return allocatedBytes;
+	}
+
+	/**
+	 * Returns the average number of bytes that have been allocated by a
+	 * measured call.
+	 *
+	 * @return The average number of allocated bytes or {@literal -1}, if the
+	 *         number of allocated bytes hasn't been measured.
+	 */
+	public double getAllocatedBytesPerCall() {
+		return allocatedBytes < 0 ? -1 : (double) allocatedBytes / sortedLatencies.length;
+	}
+
+	/**
+	 * Returns the latency, in nanoseconds, that hasn't been exceeded by the
+	 * given percentile of the measured calls.
+	 *
+	 * @param percentile
+	 *            The percentile, e.g. {@literal 99.9}.
+	 * @return The latency in nanoseconds.
+	 * @throws IllegalArgumentException
+	 *             If the given percentile is not greater than {@literal 0} and
+	 *             not greater than {@literal 100}.
+	 */
+	public long getLatency(double percentile) throws IllegalArgumentException {
+		if (!(percentile > 0 && percentile <= 100)) {
+			throw new IllegalArgumentException("percentile is not between 0 (exclusive) and 100 (inclusive)");
+		}
+		int rank = (int) Math.ceil(percentile / 100 * sortedLatencies.length);
+		return sortedLatencies[Math.max(0, rank - 1)];
+	}
+
+	/**
+	 * Asserts that the measured calls didn't allocate any memory.
+	 *
+	 * @throws AssertionError
+	 *             If the measured calls allocated memory.
+	 * @throws IllegalStateException
+	 *             If the number of allocated bytes hasn't been measured.
+	 */
+	public void assertAllocationFree() throws AssertionError, IllegalStateException {
+		assertAllocatedBytesPerCall(0);
+	}
+
+	/**
+	 * Asserts that the measured calls didn't allocate more than the given
+	 * number of bytes per call, on average.
+	 *
+	 * @param maximumBytesPerCall
+	 *            The maximum number of bytes per call.
+	 * @throws AssertionError
+	 *             If the measured calls allocated more memory.
+	 * @throws IllegalStateException
+	 *             If the number of allocated bytes hasn't been measured.
+	 */
+	public void assertAllocatedBytesPerCall(double maximumBytesPerCall) throws AssertionError, IllegalStateException {
+		if (!isAllocationMeasured()) {
+			throw new IllegalStateException("allocated bytes haven't been measured");
+		}
+		if (getAllocatedBytesPerCall() > maximumBytesPerCall) {
+			throw new AssertionError(description + " allocated " + allocatedBytes + " bytes in "
+					+ sortedLatencies.length + " calls (" + getAllocatedBytesPerCall() + " bytes per call), expected at most "
+					+ maximumBytesPerCall + " bytes per call");
+		}
+	}
+
+	/**
+	 * Asserts that the given percentile of the measured calls didn't exceed
+	 * the given latency.
+	 *
+	 * @param percentile
+	 *            The percentile, e.g. {@literal 99.9}.
+	 * @param maximumLatency
+	 *            The maximum latency.
+	 * @param unit
+	 *            The {@link TimeUnit} of the given maximum latency.
+	 * @throws AssertionError
+	 *             If the given percentile of the measured calls exceeded the
+	 *             given latency.
+	 * @throws IllegalArgumentException
+	 *             If the given percentile is not greater than {@literal 0} and
+	 *             not greater than {@literal 100} or if the given
+	 *             {@link TimeUnit} is {@literal null}.
+	 */
+	public void assertLatency(double percentile, long maximumLatency, TimeUnit unit) throws AssertionError,
+			IllegalArgumentException {
+		if (null == unit) {
+			throw new IllegalArgumentException("unit is null");
+		}
+		long latency = getLatency(percentile);
+		if (latency > unit.toNanos(maximumLatency)) {
+			throw new AssertionError(description + " took " + latency + " ns at the " + percentile
+					+ "th percentile, expected at most " + unit.toNanos(maximumLatency) + " ns");
+		}
+	}
+
+	@Override
+	public String toString() {
+		return description + " [iterations=" + sortedLatencies.length + ", bytesPerCall="
+				+ getAllocatedBytesPerCall() + ", p50=" + getLatency(50) + "ns, p99=" + getLatency(99) + "ns, p99.9="
+				+ getLatency(99.9) + "ns, max=" + getLatency(100) + "ns]";
+	}
+
+}
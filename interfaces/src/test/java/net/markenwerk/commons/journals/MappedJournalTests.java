@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2016 Torsten Krause, Markenwerk GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.markenwerk.commons.journals;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.markenwerk.commons.exceptions.HandlingException;
+import net.markenwerk.commons.translators.Utf8StringTranslator;
+
+@SuppressWarnings("javadoc")
+public class MappedJournalTests {
+
+	private File directory;
+
+	@Before
+	public void prepareDirectory() throws IOException {
+		directory = File.createTempFile("journal", "");
+		directory.delete();
+		directory.mkdirs();
+	}
+
+	@After
+	public void deleteDirectory() {
+		File[] files = directory.listFiles();
+		if (null != files) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		directory.delete();
+	}
+
+	@Test
+	public void replay_afterClose() throws IOException {
+		MappedJournalHandler<String> handler = createHandler(64);
+		for (int i = 0; i < 100; i++) {
+			handler.handle("value" + i);
+		}
+		handler.close();
+
+		MappedJournalProvider<String> provider = new MappedJournalProvider<String>(directory, createTranslator());
+		for (int i = 0; i < 100; i++) {
+			assertEquals("value" + i, provider.provide());
+		}
+		assertNull(provider.provide());
+		provider.close();
+	}
+
+	@Test
+	public void replay_continuedJournal() throws IOException {
+		MappedJournalHandler<String> handler = createHandler(64);
+		handler.handle("first");
+		handler.close();
+		handler = createHandler(64);
+		handler.handle("second");
+		handler.close();
+
+		MappedJournalProvider<String> provider = new MappedJournalProvider<String>(directory, createTranslator());
+		assertEquals("first", provider.provide());
+		assertEquals("second", provider.provide());
+		assertNull(provider.provide());
+		provider.close();
+	}
+
+	@Test
+	public void replay_concurrently() throws Exception {
+		final MappedJournalHandler<String> handler = createHandler(256);
+		MappedJournalProvider<String> provider = new MappedJournalProvider<String>(handler, createTranslator());
+		final int count = 100000;
+		Thread writer = new Thread() {
+
+			@Override
+			public void run() {
+				for (int i = 0; i < count; i++) {
+					handler.handle("value" + i);
+				}
+			}
+
+		};
+		writer.start();
+
+		int index = 0;
+		while (index < count) {
+			String value = provider.provide();
+			if (null == value) {
+				Thread.yield();
+			} else {
+				assertEquals("value" + index++, value);
+			}
+		}
+		writer.join();
+		assertNull(provider.provide());
+		handler.close();
+		provider.close();
+	}
+
+	@Test
+	public void replay_concurrentlyUncommitted() throws IOException {
+		MappedJournalHandler<String> handler = createHandler(64);
+		MappedJournalProvider<String> provider = new MappedJournalProvider<String>(handler, createTranslator());
+
+		assertNull(provider.provide());
+		handler.handle("value");
+		assertEquals("value", provider.provide());
+		assertNull(provider.provide());
+		handler.close();
+		provider.close();
+	}
+
+	@Test(expected = HandlingException.class)
+	public void handle_entryTooLarge() throws IOException {
+		MappedJournalHandler<String> handler = createHandler(16);
+		try {
+			handler.handle("a value that exceeds the segment size");
+		} finally {
+			handler.close();
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void create_nullHandler() {
+		new MappedJournalProvider<String>((MappedJournalHandler<?>) null, createTranslator());
+	}
+
+	private MappedJournalHandler<String> createHandler(int segmentSize) throws IOException {
+		return new MappedJournalHandler<String>(directory, segmentSize, createTranslator());
+	}
+
+	private static Utf8StringTranslator createTranslator() {
+		return new Utf8StringTranslator(ByteBuffer.allocate(256));
+	}
+
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2016 Torsten Krause, Markenwerk GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.markenwerk.commons.limiters;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import net.markenwerk.commons.exceptions.ProductionException;
+import net.markenwerk.commons.exceptions.ProvisioningException;
+import net.markenwerk.commons.interfaces.Producer;
+import net.markenwerk.commons.interfaces.Provider;
+import net.markenwerk.commons.limiters.CircuitBreaker.State;
+
+@SuppressWarnings("javadoc")
+public class AdaptiveLimitingProducerTests {
+
+	private static final Producer<Boolean, String> PRODUCER = new Producer<Boolean, String>() {
+
+		@Override
+		public String produce(Boolean order) throws ProductionException {
+			if (!order) {
+				throw new ProductionException("failed");
+			}
+			return "product";
+		}
+
+	};
+
+	@Test
+	public void produce_releasesLimit() {
+		AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(1, 1, 1, 1, TimeUnit.SECONDS);
+		AdaptiveLimitingProducer<Boolean, String> producer = new AdaptiveLimitingProducer<Boolean, String>(PRODUCER,
+				limit);
+
+		assertEquals("product", producer.produce(true));
+		try {
+			producer.produce(false);
+			fail();
+		} catch (ProductionException e) {
+		}
+		assertEquals("product", producer.produce(true));
+		assertEquals(0, limit.getInFlight());
+	}
+
+	@Test
+	public void produce_circuitBreakerOpen() {
+		AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(4, 1, 4, 1, TimeUnit.SECONDS);
+		CircuitBreaker circuitBreaker = new CircuitBreaker(1, 2, 1, 1, TimeUnit.HOURS);
+		AdaptiveLimitingProducer<Boolean, String> producer = new AdaptiveLimitingProducer<Boolean, String>(PRODUCER,
+				limit, circuitBreaker);
+
+		for (int i = 0; i < 2; i++) {
+			try {
+				producer.produce(false);
+				fail();
+			} catch (ProductionException e) {
+			}
+		}
+		assertEquals(State.OPEN, circuitBreaker.getState());
+
+		try {
+			producer.produce(true);
+			fail();
+		} catch (ProductionException e) {
+			assertEquals("circuit breaker is open", e.getMessage());
+		}
+		assertEquals(0, limit.getInFlight());
+	}
+
+	@Test
+	public void produce_limitExceeded() {
+		AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(1, 1, 1, 1, TimeUnit.SECONDS);
+		CircuitBreaker circuitBreaker = new CircuitBreaker(1, 1, 1, 1, TimeUnit.HOURS);
+		assertTrue(limit.tryAcquire());
+		AdaptiveLimitingProducer<Boolean, String> producer = new AdaptiveLimitingProducer<Boolean, String>(PRODUCER,
+				limit, circuitBreaker);
+
+		try {
+			producer.produce(true);
+			fail();
+		} catch (ProductionException e) {
+			assertEquals("concurrency limit exceeded", e.getMessage());
+		}
+		assertEquals(1, limit.getInFlight());
+		assertEquals(State.CLOSED, circuitBreaker.getState());
+	}
+
+	@Test
+	public void provide_circuitBreakerOpen() {
+		AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(4, 1, 4, 1, TimeUnit.SECONDS);
+		CircuitBreaker circuitBreaker = new CircuitBreaker(1, 1, 1, 1, TimeUnit.HOURS);
+		AdaptiveLimitingProvider<String> provider = new AdaptiveLimitingProvider<String>(new Provider<String>() {
+
+			@Override
+			public String provide() throws ProvisioningException {
+				throw new ProvisioningException("failed");
+			}
+
+		}, limit, circuitBreaker);
+
+		try {
+			provider.provide();
+			fail();
+		} catch (ProvisioningException e) {
+			assertEquals("failed", e.getMessage());
+		}
+		assertEquals(State.OPEN, circuitBreaker.getState());
+
+		try {
+			provider.provide();
+			fail();
+		} catch (ProvisioningException e) {
+			assertEquals("circuit breaker is open", e.getMessage());
+		}
+		assertEquals(0, limit.getInFlight());
+	}
+
+}
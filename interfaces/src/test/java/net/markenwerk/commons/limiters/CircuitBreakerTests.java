@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2016 Torsten Krause, Markenwerk GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.markenwerk.commons.limiters;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import net.markenwerk.commons.limiters.CircuitBreaker.State;
+
+@SuppressWarnings("javadoc")
+public class CircuitBreakerTests {
+
+	@Test
+	public void onFailure_opens() {
+		CircuitBreaker circuitBreaker = new CircuitBreaker(0.5, 4, 1, 1, TimeUnit.HOURS);
+
+		circuitBreaker.onSuccess(circuitBreaker.tryAcquire());
+		circuitBreaker.onFailure(circuitBreaker.tryAcquire());
+		circuitBreaker.onSuccess(circuitBreaker.tryAcquire());
+		assertEquals(State.CLOSED, circuitBreaker.getState());
+		circuitBreaker.onFailure(circuitBreaker.tryAcquire());
+
+		assertEquals(State.OPEN, circuitBreaker.getState());
+		assertEquals(CircuitBreaker.REJECTED, circuitBreaker.tryAcquire());
+	}
+
+	@Test
+	public void onSuccess_probeCloses() throws InterruptedException {
+		CircuitBreaker circuitBreaker = createOpenCircuitBreaker();
+		Thread.sleep(20);
+
+		long probe = circuitBreaker.tryAcquire();
+		assertTrue(probe > 0);
+		assertEquals(State.HALF_OPEN, circuitBreaker.getState());
+		assertEquals(CircuitBreaker.REJECTED, circuitBreaker.tryAcquire());
+		circuitBreaker.onSuccess(probe);
+
+		assertEquals(State.CLOSED, circuitBreaker.getState());
+	}
+
+	@Test
+	public void onFailure_probeReopens() throws InterruptedException {
+		CircuitBreaker circuitBreaker = createOpenCircuitBreaker();
+		Thread.sleep(20);
+
+		circuitBreaker.onFailure(circuitBreaker.tryAcquire());
+
+		assertEquals(State.OPEN, circuitBreaker.getState());
+		assertEquals(CircuitBreaker.REJECTED, circuitBreaker.tryAcquire());
+	}
+
+	@Test
+	public void onSuccess_slowCallDoesntClose() throws InterruptedException {
+		CircuitBreaker circuitBreaker = new CircuitBreaker(1, 1, 1, 10, TimeUnit.MILLISECONDS);
+		long slowCall = circuitBreaker.tryAcquire();
+		circuitBreaker.onFailure(circuitBreaker.tryAcquire());
+		Thread.sleep(20);
+
+		long probe = circuitBreaker.tryAcquire();
+		circuitBreaker.onSuccess(slowCall);
+		assertEquals(State.HALF_OPEN, circuitBreaker.getState());
+
+		circuitBreaker.onFailure(probe);
+		assertEquals(State.OPEN, circuitBreaker.getState());
+	}
+
+	@Test
+	public void onSuccess_previousProbeIgnored() throws InterruptedException {
+		CircuitBreaker circuitBreaker = createOpenCircuitBreaker();
+		Thread.sleep(20);
+		long previousProbe = circuitBreaker.tryAcquire();
+		Thread.sleep(20);
+		long probe = circuitBreaker.tryAcquire();
+		assertTrue(probe > 0);
+
+		circuitBreaker.onSuccess(previousProbe);
+		assertEquals(State.HALF_OPEN, circuitBreaker.getState());
+
+		circuitBreaker.onSuccess(probe);
+		assertEquals(State.CLOSED, circuitBreaker.getState());
+	}
+
+	@Test
+	public void onFailure_windowReset() throws InterruptedException {
+		CircuitBreaker circuitBreaker = new CircuitBreaker(1, 2, 10, 1, TimeUnit.MILLISECONDS);
+		circuitBreaker.onFailure(circuitBreaker.tryAcquire());
+		Thread.sleep(20);
+
+		// the failure of the previous window isn't counted
+		circuitBreaker.onFailure(circuitBreaker.tryAcquire());
+		assertEquals(State.CLOSED, circuitBreaker.getState());
+
+		circuitBreaker.onFailure(circuitBreaker.tryAcquire());
+		assertEquals(State.OPEN, circuitBreaker.getState());
+	}
+
+	private static CircuitBreaker createOpenCircuitBreaker() {
+		CircuitBreaker circuitBreaker = new CircuitBreaker(1, 1, 1, 10, TimeUnit.MILLISECONDS);
+		circuitBreaker.onFailure(circuitBreaker.tryAcquire());
+		assertEquals(State.OPEN, circuitBreaker.getState());
+		return circuitBreaker;
+	}
+
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2016 Torsten Krause, Markenwerk GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.markenwerk.commons.limiters;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import net.markenwerk.commons.exceptions.HandlingException;
+import net.markenwerk.commons.exceptions.ProductionException;
+import net.markenwerk.commons.harnesses.HotPathHarness;
+import net.markenwerk.commons.interfaces.Handler;
+import net.markenwerk.commons.interfaces.Producer;
+import net.markenwerk.commons.interfaces.Provider;
+
+@SuppressWarnings("javadoc")
+public class TokenBucketTests {
+
+	@Test(expected = IllegalArgumentException.class)
+	public void create_nullUnit() {
+		new TokenBucket(1, 1, null, 1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void create_intervalTooSmall() {
+		new TokenBucket(2, 1, TimeUnit.NANOSECONDS, 1);
+	}
+
+	@Test
+	public void tryAcquire_burst() {
+		TokenBucket bucket = new TokenBucket(1, 1, TimeUnit.HOURS, 3);
+
+		assertTrue(bucket.tryAcquire());
+		assertTrue(bucket.tryAcquire());
+		assertTrue(bucket.tryAcquire());
+		assertFalse(bucket.tryAcquire());
+	}
+
+	@Test
+	public void tryAcquire_maximumDelayTooShort() throws InterruptedException {
+		TokenBucket bucket = new TokenBucket(1, 1, TimeUnit.HOURS, 1);
+
+		assertTrue(bucket.tryAcquire());
+		assertFalse(bucket.tryAcquire(10, TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	public void tryAcquire_waits() throws InterruptedException {
+		TokenBucket bucket = new TokenBucket(1, 20, TimeUnit.MILLISECONDS, 1);
+
+		assertTrue(bucket.tryAcquire());
+		long start = System.nanoTime();
+		assertTrue(bucket.tryAcquire(1, TimeUnit.SECONDS));
+		assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(10));
+	}
+
+	@Test
+	public void acquireOrDescribeFailure_exceeded() {
+		TokenBucket bucket = new TokenBucket(1, 1, TimeUnit.HOURS, 1);
+
+		assertNull(bucket.acquireOrDescribeFailure(0));
+		assertEquals("rate limit exceeded", bucket.acquireOrDescribeFailure(TimeUnit.MILLISECONDS.toNanos(10)));
+	}
+
+	@Test
+	public void acquireOrDescribeFailure_interrupted() {
+		TokenBucket bucket = new TokenBucket(1, 20, TimeUnit.MILLISECONDS, 1);
+		assertTrue(bucket.tryAcquire());
+
+		Thread.currentThread().interrupt();
+
+		assertEquals("interrupted while waiting for a permit",
+				bucket.acquireOrDescribeFailure(TimeUnit.SECONDS.toNanos(1)));
+		assertTrue(Thread.interrupted());
+	}
+
+	@Test
+	public void handle_rateLimitExceeded() {
+		TokenBucket bucket = new TokenBucket(1, 1, TimeUnit.HOURS, 1);
+		final int[] handled = new int[1];
+		RateLimitingHandler<String> handler = new RateLimitingHandler<String>(new Handler<String>() {
+
+			@Override
+			public void handle(String value) {
+				handled[0]++;
+			}
+
+		}, bucket, 0, TimeUnit.NANOSECONDS);
+
+		handler.handle("value");
+		try {
+			handler.handle("value");
+			fail();
+		} catch (HandlingException e) {
+			assertEquals("rate limit exceeded", e.getMessage());
+		}
+		assertEquals(1, handled[0]);
+	}
+
+	@Test
+	public void produce_rateLimitExceeded() {
+		TokenBucket bucket = new TokenBucket(1, 1, TimeUnit.HOURS, 1);
+		RateLimitingProducer<String, String> producer = new RateLimitingProducer<String, String>(
+				new Producer<String, String>() {
+
+					@Override
+					public String produce(String order) {
+						return "product";
+					}
+
+				}, bucket, 10, TimeUnit.MILLISECONDS);
+
+		assertEquals("product", producer.produce("order"));
+		try {
+			producer.produce("order");
+			fail();
+		} catch (ProductionException e) {
+			assertEquals("rate limit exceeded", e.getMessage());
+		}
+	}
+
+	@Test
+	public void tryAcquire_allocationFree() {
+		Assume.assumeTrue(HotPathHarness.isAllocationMeasurementSupported());
+
+		final TokenBucket bucket = new TokenBucket(1, 1, TimeUnit.NANOSECONDS, 1000);
+
+		new HotPathHarness(100000, 100000).measureProvider(new Provider<Boolean>() {
+
+			@Override
+			public Boolean provide() {
+				return bucket.tryAcquire();
+			}
+
+		}).assertAllocationFree();
+	}
+
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2016 Torsten Krause, Markenwerk GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.markenwerk.commons.predicates;
+
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import net.markenwerk.commons.harnesses.HotPathHarness;
+
+@SuppressWarnings("javadoc")
+public class BloomFilterPredicateTests {
+
+	@Test(expected = IllegalArgumentException.class)
+	public void create_invalidProbability() {
+		new BloomFilterPredicate<String>(100, 1.5);
+	}
+
+	@Test
+	public void test_noFalseNegatives() {
+		BloomFilterPredicate<String> predicate = new BloomFilterPredicate<String>(1000, 0.01);
+		for (int i = 0; i < 1000; i++) {
+			predicate.add("subject" + i);
+		}
+
+		for (int i = 0; i < 1000; i++) {
+			assertTrue(predicate.test("subject" + i));
+		}
+	}
+
+	@Test
+	public void test_falsePositiveProbability() {
+		BloomFilterPredicate<String> predicate = new BloomFilterPredicate<String>(10000, 0.01);
+		for (int i = 0; i < 10000; i++) {
+			predicate.add("subject" + i);
+		}
+
+		int falsePositives = 0;
+		for (int i = 0; i < 10000; i++) {
+			if (predicate.test("other" + i)) {
+				falsePositives++;
+			}
+		}
+		assertTrue(falsePositives < 300);
+	}
+
+	@Test
+	public void test_allocationFree() {
+		Assume.assumeTrue(HotPathHarness.isAllocationMeasurementSupported());
+
+		BloomFilterPredicate<String> predicate = new BloomFilterPredicate<String>(1000, 0.01);
+		predicate.add("subject");
+
+		new HotPathHarness(100000, 100000).measurePredicate(predicate, "subject").assertAllocationFree();
+	}
+
+}
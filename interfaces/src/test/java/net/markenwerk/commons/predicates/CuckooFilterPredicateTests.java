@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2016 Torsten Krause, Markenwerk GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.markenwerk.commons.predicates;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class CuckooFilterPredicateTests {
+
+	@Test(expected = IllegalArgumentException.class)
+	public void create_invalidProbability() {
+		new CuckooFilterPredicate<String>(100, 1.5);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void create_probabilityTooSmall() {
+		new CuckooFilterPredicate<String>(100, 1e-12);
+	}
+
+	@Test
+	public void add_duplicate() {
+		CuckooFilterPredicate<String> predicate = new CuckooFilterPredicate<String>(1000, 0.001);
+
+		assertTrue(predicate.add("subject"));
+		assertFalse(predicate.add("subject"));
+	}
+
+	@Test
+	public void test_noFalseNegatives() {
+		CuckooFilterPredicate<String> predicate = new CuckooFilterPredicate<String>(1000, 0.001);
+		for (int i = 0; i < 1000; i++) {
+			predicate.add("subject" + i);
+		}
+
+		for (int i = 0; i < 1000; i++) {
+			assertTrue(predicate.test("subject" + i));
+		}
+	}
+
+	@Test
+	public void test_falsePositiveProbability() {
+		assertTrue(countFalsePositives(0.05) < 500);
+		assertTrue(countFalsePositives(0.01) < 100);
+		assertTrue(countFalsePositives(0.0001) < 5);
+	}
+
+	@Test
+	public void add_relocation() {
+		CuckooFilterPredicate<String> predicate = new CuckooFilterPredicate<String>(8, 0.001);
+
+		List<String> subjects = addWithRelocation(predicate);
+
+		for (String subject : subjects) {
+			assertTrue(predicate.test(subject));
+		}
+	}
+
+	@Test
+	public void remove_afterRelocation() {
+		CuckooFilterPredicate<String> predicate = new CuckooFilterPredicate<String>(8, 0.001);
+
+		List<String> subjects = addWithRelocation(predicate);
+
+		for (String subject : subjects) {
+			assertTrue(predicate.remove(subject));
+			assertFalse(predicate.test(subject));
+		}
+	}
+
+	@Test
+	public void remove_notAdded() {
+		CuckooFilterPredicate<String> predicate = new CuckooFilterPredicate<String>(1000, 0.001);
+		predicate.add("subject");
+
+		assertFalse(predicate.remove("other"));
+		assertTrue(predicate.test("subject"));
+	}
+
+	@Test
+	public void remove_addAgain() {
+		CuckooFilterPredicate<String> predicate = new CuckooFilterPredicate<String>(1000, 0.001);
+		predicate.add("subject");
+
+		assertTrue(predicate.remove("subject"));
+		assertFalse(predicate.remove("subject"));
+		assertTrue(predicate.add("subject"));
+		assertTrue(predicate.test("subject"));
+	}
+
+	private static List<String> addWithRelocation(CuckooFilterPredicate<String> predicate) {
+		List<String> subjects = new ArrayList<String>();
+		String subject = null;
+		for (int i = 0; subjects.size() < 4 || null == subject; i++) {
+			String candidate = "subject" + i;
+			if (0 == predicate.getIndex(candidate)) {
+				if (0 != predicate.getAlternateIndex(candidate) && subjects.size() < 4) {
+					subjects.add(candidate);
+				} else if (0 == predicate.getAlternateIndex(candidate) && null == subject) {
+					subject = candidate;
+				}
+			}
+		}
+		for (String filling : subjects) {
+			assertTrue(predicate.add(filling));
+		}
+
+		// both candidate buckets of the subject are full
+		assertTrue(predicate.add(subject));
+
+		subjects.add(subject);
+		return subjects;
+	}
+
+	private static int countFalsePositives(double falsePositiveProbability) {
+		CuckooFilterPredicate<String> predicate = new CuckooFilterPredicate<String>(10000, falsePositiveProbability);
+		for (int i = 0; i < 10000; i++) {
+			predicate.add("subject" + i);
+		}
+
+		int falsePositives = 0;
+		for (int i = 0; i < 10000; i++) {
+			if (predicate.test("other" + i)) {
+				falsePositives++;
+			}
+		}
+		return falsePositives;
+	}
+
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2016 Torsten Krause, Markenwerk GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.markenwerk.commons.predicates;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.markenwerk.commons.interfaces.Predicate;
+
+@SuppressWarnings("javadoc")
+public class ParallelFilterTests {
+
+	private ExecutorService executor;
+
+	private ParallelFilter filter;
+
+	@Before
+	public void prepareFilter() {
+		executor = Executors.newFixedThreadPool(4);
+		filter = new ParallelFilter(executor, 4);
+	}
+
+	@After
+	public void shutdownExecutor() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void filterRange_int() {
+		int[] values = new int[1000003];
+		Random random = new Random(42);
+		for (int i = 0; i < values.length; i++) {
+			values[i] = random.nextInt(1000);
+		}
+
+		IndexSet indexSet = filter.filterRange(values, 100, 199);
+
+		int cardinality = 0;
+		for (int i = 0; i < values.length; i++) {
+			boolean inRange = 100 <= values[i] && values[i] <= 199;
+			assertEquals(inRange, indexSet.contains(i));
+			cardinality += inRange ? 1 : 0;
+		}
+		assertEquals(values.length, indexSet.size());
+		assertEquals(cardinality, indexSet.cardinality());
+		assertEquals(cardinality, indexSet.toArray().length);
+	}
+
+	@Test
+	public void filterRange_doubleNaN() {
+		double[] values = new double[] { 1, Double.NaN, 2, Double.NEGATIVE_INFINITY };
+
+		IndexSet indexSet = filter.filterRange(values, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+
+		assertTrue(indexSet.contains(0));
+		assertFalse(indexSet.contains(1));
+		assertTrue(indexSet.contains(2));
+		assertTrue(indexSet.contains(3));
+	}
+
+	@Test
+	public void filter_subjects() {
+		Integer[] subjects = new Integer[100000];
+		for (int i = 0; i < subjects.length; i++) {
+			subjects[i] = i;
+		}
+
+		IndexSet indexSet = filter.filter(subjects, new Predicate<Integer>() {
+
+			@Override
+			public boolean test(Integer subject) {
+				return 0 == subject % 3;
+			}
+
+		});
+
+		assertEquals(33334, indexSet.cardinality());
+		for (int index = indexSet.nextIndex(0); -1 != index; index = indexSet.nextIndex(index + 1)) {
+			assertEquals(0, index % 3);
+		}
+	}
+
+	@Test
+	public void filter_errorOnHelperThread() {
+		final Thread caller = Thread.currentThread();
+		Integer[] subjects = new Integer[1000000];
+		for (int i = 0; i < subjects.length; i++) {
+			subjects[i] = i;
+		}
+
+		try {
+			filter.filter(subjects, new Predicate<Integer>() {
+
+				@Override
+				public boolean test(Integer subject) {
+					if (caller != Thread.currentThread()) {
+						throw new StackOverflowError();
+					}
+					return true;
+				}
+
+			});
+			fail();
+		} catch (StackOverflowError e) {
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void filter_exceptionOnHelperThread() {
+		final Thread caller = Thread.currentThread();
+		Integer[] subjects = new Integer[1000000];
+
+		filter.filter(subjects, new Predicate<Integer>() {
+
+			@Override
+			public boolean test(Integer subject) {
+				if (caller != Thread.currentThread()) {
+					throw new IllegalStateException();
+				}
+				return true;
+			}
+
+		});
+	}
+
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2016 Torsten Krause, Markenwerk GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.markenwerk.commons.timers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.markenwerk.commons.interfaces.Callback;
+import net.markenwerk.commons.interfaces.Check;
+
+@SuppressWarnings("javadoc")
+public class CheckPollerTests {
+
+	private HashedWheelTimer timer;
+
+	private CheckPoller poller;
+
+	private AtomicReference<Boolean> result;
+
+	private CountDownLatch latch;
+
+	private Callback<Check, Boolean> callback;
+
+	@Before
+	public void preparePoller() {
+		timer = new HashedWheelTimer(1, TimeUnit.MILLISECONDS, 64);
+		poller = new CheckPoller(timer);
+		result = new AtomicReference<Boolean>();
+		latch = new CountDownLatch(1);
+		callback = new Callback<Check, Boolean>() {
+
+			@Override
+			public void onResult(Check check, Boolean passed) {
+				result.set(passed);
+				latch.countDown();
+			}
+
+		};
+	}
+
+	@After
+	public void stopTimer() {
+		timer.stop();
+	}
+
+	@Test
+	public void poll_passes() throws InterruptedException {
+		final AtomicInteger evaluations = new AtomicInteger();
+		poller.poll(new Check() {
+
+			@Override
+			public boolean test() {
+				return 3 == evaluations.incrementAndGet();
+			}
+
+		}, callback, 1, 10, 0, TimeUnit.MILLISECONDS);
+
+		assertTrue(latch.await(1, TimeUnit.SECONDS));
+		assertEquals(Boolean.TRUE, result.get());
+		assertEquals(3, evaluations.get());
+	}
+
+	@Test
+	public void poll_timeout() throws InterruptedException {
+		poller.poll(new Check() {
+
+			@Override
+			public boolean test() {
+				return false;
+			}
+
+		}, callback, 1, 10, 50, TimeUnit.MILLISECONDS);
+
+		assertTrue(latch.await(1, TimeUnit.SECONDS));
+		assertEquals(Boolean.FALSE, result.get());
+	}
+
+	@Test
+	public void poll_failingCheck() throws InterruptedException {
+		poller.poll(new Check() {
+
+			@Override
+			public boolean test() {
+				throw new RuntimeException();
+			}
+
+		}, callback, 1, 10, 30, TimeUnit.MILLISECONDS);
+
+		assertTrue(latch.await(1, TimeUnit.SECONDS));
+		assertEquals(Boolean.FALSE, result.get());
+	}
+
+	@Test
+	public void cancel_notNotified() throws InterruptedException {
+		CheckPolling polling = poller.poll(new Check() {
+
+			@Override
+			public boolean test() {
+				return true;
+			}
+
+		}, callback, 20, 20, 0, TimeUnit.MILLISECONDS);
+
+		assertTrue(polling.cancel());
+		assertTrue(polling.isDone());
+		assertFalse(latch.await(50, TimeUnit.MILLISECONDS));
+		assertNull(result.get());
+	}
+
+	@Test
+	public void poll_stoppedTimer() {
+		timer.stop();
+		try {
+			poller.poll(new Check() {
+
+				@Override
+				public boolean test() {
+					return true;
+				}
+
+			}, callback, 1, 1, 0, TimeUnit.MILLISECONDS);
+		} catch (IllegalStateException e) {
+			assertNull(result.get());
+			return;
+		}
+		fail();
+	}
+
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2016 Torsten Krause, Markenwerk GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.markenwerk.commons.timers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class HashedWheelTimerTests {
+
+	private HashedWheelTimer timer;
+
+	@Before
+	public void prepareTimer() {
+		timer = new HashedWheelTimer(1, TimeUnit.MILLISECONDS, 64);
+	}
+
+	@After
+	public void stopTimer() {
+		timer.stop();
+	}
+
+	@Test
+	public void schedule_expires() throws InterruptedException {
+		final CountDownLatch latch = new CountDownLatch(1);
+		Timeout timeout = timer.schedule(new Runnable() {
+
+			@Override
+			public void run() {
+				latch.countDown();
+			}
+
+		}, 10, TimeUnit.MILLISECONDS);
+
+		assertTrue(latch.await(1, TimeUnit.SECONDS));
+		assertTrue(timeout.isExpired());
+	}
+
+	@Test
+	public void schedule_longerThanOneRotation() throws InterruptedException {
+		final CountDownLatch latch = new CountDownLatch(1);
+		long start = System.nanoTime();
+		timer.schedule(new Runnable() {
+
+			@Override
+			public void run() {
+				latch.countDown();
+			}
+
+		}, 150, TimeUnit.MILLISECONDS);
+
+		assertTrue(latch.await(1, TimeUnit.SECONDS));
+		assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(150));
+	}
+
+	@Test
+	public void cancel_notExecuted() throws InterruptedException {
+		final AtomicInteger executions = new AtomicInteger();
+		Timeout timeout = timer.schedule(new Runnable() {
+
+			@Override
+			public void run() {
+				executions.incrementAndGet();
+			}
+
+		}, 20, TimeUnit.MILLISECONDS);
+
+		assertTrue(timeout.cancel());
+		assertFalse(timeout.cancel());
+		Thread.sleep(50);
+		assertTrue(timeout.isCancelled());
+		assertEquals(0, executions.get());
+	}
+
+	@Test
+	public void schedule_concurrently() throws InterruptedException {
+		final int threads = 8;
+		final int timeoutsPerThread = 10000;
+		final CountDownLatch latch = new CountDownLatch(threads * timeoutsPerThread / 2);
+		final Runnable task = new Runnable() {
+
+			@Override
+			public void run() {
+				latch.countDown();
+			}
+
+		};
+		for (int i = 0; i < threads; i++) {
+			new Thread() {
+
+				@Override
+				public void run() {
+					for (int j = 0; j < timeoutsPerThread; j++) {
+						Timeout timeout = timer.schedule(task, j % 50, TimeUnit.MILLISECONDS);
+						if (0 == j % 2) {
+							timeout.cancel();
+						}
+					}
+				}
+
+			}.start();
+		}
+
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+		Thread.sleep(100);
+		assertEquals(0, latch.getCount());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void schedule_stopped() {
+		timer.stop();
+		timer.schedule(new Runnable() {
+
+			@Override
+			public void run() {
+			}
+
+		}, 1, TimeUnit.MILLISECONDS);
+	}
+
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2016 Torsten Krause, Markenwerk GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.markenwerk.commons.translators;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+import net.markenwerk.commons.exceptions.ConversionException;
+
+@SuppressWarnings("javadoc")
+public class Utf8StringTranslatorTests {
+
+	private final Utf8StringTranslator translator = new Utf8StringTranslator(ByteBuffer.allocate(64));
+
+	@Test
+	public void convert_roundTrip() {
+		String value = "a\u00E4\u20AC\uD83D\uDE00\u007F\u0080\u07FF\u0800\uFFFF";
+
+		ByteBuffer buffer = translator.convert(value);
+
+		assertEquals(1 + 1 + 2 + 3 + 4 + 1 + 2 + 2 + 3 + 3, buffer.remaining());
+		assertEquals(value, translator.revert(buffer));
+		assertEquals(0, buffer.remaining());
+	}
+
+	@Test
+	public void convert_matchesJdkEncoding() throws Exception {
+		String value = "\u00E4\u20AC\uD83D\uDE00";
+
+		ByteBuffer buffer = translator.convert(value);
+
+		byte[] expected = value.getBytes("UTF-8");
+		assertEquals(expected.length, VarInts.readInt(buffer));
+		for (byte current : expected) {
+			assertEquals(current, buffer.get());
+		}
+	}
+
+	@Test(expected = ConversionException.class)
+	public void convert_loneHighSurrogate() {
+		translator.convert("a\uD83D");
+	}
+
+	@Test(expected = ConversionException.class)
+	public void convert_highSurrogateWithoutLowSurrogate() {
+		translator.convert("\uD83Da");
+	}
+
+	@Test(expected = ConversionException.class)
+	public void convert_loneLowSurrogate() {
+		translator.convert("\uDE00a");
+	}
+
+	@Test
+	public void convert_insufficientSpace() {
+		Utf8StringTranslator smallTranslator = new Utf8StringTranslator(ByteBuffer.allocate(4));
+
+		try {
+			smallTranslator.convert("\u20AC\u20AC");
+			fail();
+		} catch (ConversionException e) {
+		}
+	}
+
+	@Test(expected = ConversionException.class)
+	public void revert_overlongTwoByteSequence() {
+		// '/' encoded with two bytes
+		translator.revert(bytes(2, 0xC0, 0xAF));
+	}
+
+	@Test(expected = ConversionException.class)
+	public void revert_overlongThreeByteSequence() {
+		// '/' encoded with three bytes
+		translator.revert(bytes(3, 0xE0, 0x80, 0xAF));
+	}
+
+	@Test(expected = ConversionException.class)
+	public void revert_overlongFourByteSequence() {
+		// U+20AC encoded with four bytes
+		translator.revert(bytes(4, 0xF0, 0x82, 0x82, 0xAC));
+	}
+
+	@Test(expected = ConversionException.class)
+	public void revert_encodedSurrogate() {
+		// U+D800 encoded with three bytes
+		translator.revert(bytes(3, 0xED, 0xA0, 0x80));
+	}
+
+	@Test(expected = ConversionException.class)
+	public void revert_codePointTooLarge() {
+		// U+110000
+		translator.revert(bytes(4, 0xF4, 0x90, 0x80, 0x80));
+	}
+
+	@Test(expected = ConversionException.class)
+	public void revert_invalidLeadingByte() {
+		translator.revert(bytes(1, 0xFF));
+	}
+
+	@Test(expected = ConversionException.class)
+	public void revert_invalidContinuationByte() {
+		translator.revert(bytes(2, 0xC3, 0x41));
+	}
+
+	@Test
+	public void revert_truncatedSequence() {
+		// the length ends in the middle of a sequence
+		ByteBuffer buffer = bytes(1, 0xC3, 0xA4);
+
+		try {
+			translator.revert(buffer);
+			fail();
+		} catch (ConversionException e) {
+			assertEquals(0, buffer.position());
+		}
+	}
+
+	@Test
+	public void revert_truncatedData() {
+		ByteBuffer buffer = bytes(3, 0x61);
+
+		try {
+			translator.revert(buffer);
+			fail();
+		} catch (ConversionException e) {
+			assertEquals(0, buffer.position());
+		}
+	}
+
+	private static ByteBuffer bytes(int... values) {
+		ByteBuffer buffer = ByteBuffer.allocate(values.length);
+		for (int value : values) {
+			buffer.put((byte) value);
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2016 Torsten Krause, Markenwerk GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.markenwerk.commons.translators;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+import net.markenwerk.commons.exceptions.ConversionException;
+
+@SuppressWarnings("javadoc")
+public class VarIntsTests {
+
+	@Test
+	public void writeInt_lengthBoundaries() {
+		assertIntLength(0, 1);
+		assertIntLength(0x7F, 1);
+		assertIntLength(0x80, 2);
+		assertIntLength(0x3FFF, 2);
+		assertIntLength(0x4000, 3);
+		assertIntLength(0x1FFFFF, 3);
+		assertIntLength(0x200000, 4);
+		assertIntLength(0xFFFFFFF, 4);
+		assertIntLength(0x10000000, 5);
+		assertIntLength(Integer.MAX_VALUE, 5);
+		assertIntLength(Integer.MIN_VALUE, 5);
+		assertIntLength(-1, 5);
+	}
+
+	@Test
+	public void writeLong_lengthBoundaries() {
+		assertLongLength(0, 1);
+		for (int bytes = 1; bytes < 9; bytes++) {
+			long limit = 1L << (7 * bytes);
+			assertLongLength(limit - 1, bytes);
+			assertLongLength(limit, bytes + 1);
+		}
+		assertLongLength(Long.MAX_VALUE, 9);
+		assertLongLength(Long.MIN_VALUE, 10);
+		assertLongLength(-1, 10);
+	}
+
+	@Test
+	public void zigZag_int() {
+		assertEquals(0, VarInts.zigZag(0));
+		assertEquals(1, VarInts.zigZag(-1));
+		assertEquals(2, VarInts.zigZag(1));
+		assertEquals(0xFFFFFFFE, VarInts.zigZag(Integer.MAX_VALUE));
+		assertEquals(0xFFFFFFFF, VarInts.zigZag(Integer.MIN_VALUE));
+
+		for (int value : new int[] { 0, -1, 1, 63, -64, 64, Integer.MAX_VALUE, Integer.MIN_VALUE }) {
+			assertEquals(value, VarInts.unZigZag(VarInts.zigZag(value)));
+		}
+	}
+
+	@Test
+	public void zigZag_long() {
+		assertEquals(0L, VarInts.zigZag(0L));
+		assertEquals(1L, VarInts.zigZag(-1L));
+		assertEquals(2L, VarInts.zigZag(1L));
+		assertEquals(0xFFFFFFFFFFFFFFFEL, VarInts.zigZag(Long.MAX_VALUE));
+		assertEquals(0xFFFFFFFFFFFFFFFFL, VarInts.zigZag(Long.MIN_VALUE));
+
+		for (long value : new long[] { 0, -1, 1, 63, -64, 64, Long.MAX_VALUE, Long.MIN_VALUE }) {
+			assertEquals(value, VarInts.unZigZag(VarInts.zigZag(value)));
+		}
+	}
+
+	@Test
+	public void translate_zigZagMinimum() {
+		ByteBuffer buffer = ByteBuffer.allocate(16);
+
+		VarIntTranslator intTranslator = new VarIntTranslator(buffer, true);
+		assertEquals(5, intTranslator.convert(Integer.MIN_VALUE).remaining());
+		assertEquals(Integer.valueOf(Integer.MIN_VALUE),
+				intTranslator.revert(intTranslator.convert(Integer.MIN_VALUE)));
+		assertEquals(1, intTranslator.convert(-1).remaining());
+
+		VarLongTranslator longTranslator = new VarLongTranslator(buffer, true);
+		assertEquals(10, longTranslator.convert(Long.MIN_VALUE).remaining());
+		assertEquals(Long.valueOf(Long.MIN_VALUE), longTranslator.revert(longTranslator.convert(Long.MIN_VALUE)));
+		assertEquals(1, longTranslator.convert(-1L).remaining());
+	}
+
+	@Test(expected = BufferUnderflowException.class)
+	public void readInt_truncated() {
+		VarInts.readInt(bytes(0x80, 0x80));
+	}
+
+	@Test(expected = BufferUnderflowException.class)
+	public void readLong_truncated() {
+		VarInts.readLong(bytes(0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF));
+	}
+
+	@Test
+	public void read_truncatedRestoresPosition() {
+		ByteBuffer buffer = bytes(0x80, 0x80);
+
+		try {
+			new VarIntTranslator(ByteBuffer.allocate(0)).read(buffer);
+			fail();
+		} catch (ConversionException e) {
+			assertEquals(0, buffer.position());
+		}
+	}
+
+	@Test(expected = ConversionException.class)
+	public void readInt_overlongFifthByte() {
+		VarInts.readInt(bytes(0xFF, 0xFF, 0xFF, 0xFF, 0x10));
+	}
+
+	@Test(expected = ConversionException.class)
+	public void readInt_overlongContinuation() {
+		VarInts.readInt(bytes(0x80, 0x80, 0x80, 0x80, 0x80, 0x00));
+	}
+
+	@Test
+	public void readInt_maximumFifthByte() {
+		assertEquals(-1, VarInts.readInt(bytes(0xFF, 0xFF, 0xFF, 0xFF, 0x0F)));
+	}
+
+	@Test(expected = ConversionException.class)
+	public void readLong_overlongTenthByte() {
+		VarInts.readLong(bytes(0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0x02));
+	}
+
+	@Test(expected = ConversionException.class)
+	public void readLong_overlongContinuation() {
+		VarInts.readLong(bytes(0x80, 0x80, 0x80, 0x80, 0x80, 0x80, 0x80, 0x80, 0x80, 0x80, 0x00));
+	}
+
+	@Test
+	public void readLong_maximumTenthByte() {
+		assertEquals(-1L, VarInts.readLong(bytes(0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0x01)));
+	}
+
+	private static void assertIntLength(int value, int length) {
+		ByteBuffer buffer = ByteBuffer.allocate(16);
+		VarInts.writeInt(value, buffer);
+		assertEquals(length, buffer.position());
+		buffer.flip();
+		assertEquals(value, VarInts.readInt(buffer));
+		assertEquals(length, buffer.position());
+	}
+
+	private static void assertLongLength(long value, int length) {
+		ByteBuffer buffer = ByteBuffer.allocate(16);
+		VarInts.writeLong(value, buffer);
+		assertEquals(length, buffer.position());
+		buffer.flip();
+		assertEquals(value, VarInts.readLong(buffer));
+		assertEquals(length, buffer.position());
+	}
+
+	private static ByteBuffer bytes(int... values) {
+		ByteBuffer buffer = ByteBuffer.allocate(values.length);
+		for (int value : values) {
+			buffer.put((byte) value);
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+}